@@ -8,6 +8,7 @@ import static java.nio.ByteBuffer.wrap;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,6 +41,10 @@ public final class Bytes {
     return wrap(buffer);
   }
 
+  public InputStream toInputStream() {
+    return new ByteArrayInputStream(buffer);
+  }
+
   public int size() {
     return buffer.length;
   }
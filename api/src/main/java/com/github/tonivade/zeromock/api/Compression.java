@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import com.github.tonivade.purefun.type.Option;
+
+final class Compression {
+
+  private static final String GZIP = "gzip";
+  private static final String DEFLATE = "deflate";
+  private static final String X_GZIP = "x-gzip";
+
+  private static final String ACCEPT_ENCODING = "Accept-Encoding";
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+  private static final String CONTENT_LENGTH = "Content-Length";
+
+  // smaller bodies don't pay off the headers and the work
+  private static final int MIN_SIZE = 1024;
+  private static final long MAX_CACHE_SIZE = 32 * 1024 * 1024;
+
+  private static final Cache CACHE = new Cache(MAX_CACHE_SIZE);
+
+  private Compression() {}
+
+  static HttpResponse encode(HttpRequest request, HttpResponse response) {
+    if (response.stream().isPresent()
+        || !response.status().hasBody()
+        || response.body().size() < MIN_SIZE
+        || !header(response.headers(), CONTENT_ENCODING).isEmpty()) {
+      return response;
+    }
+    String encoding = negotiate(header(request.headers(), ACCEPT_ENCODING));
+    if (encoding == null) {
+      return response;
+    }
+    Bytes compressed = CACHE.get(encoding, response.body());
+    return new HttpResponse(response.status(), compressed, response.headers())
+        .withHeader(CONTENT_ENCODING, encoding)
+        .withHeader("Vary", ACCEPT_ENCODING);
+  }
+
+  // the request keeps the compressed body, the new one is inflated only if a matcher or handler reads it
+  static HttpRequest decode(HttpRequest request, int maxSize) {
+    String coding = header(request.headers(), CONTENT_ENCODING).trim().toLowerCase();
+    String encoding = coding.equals(X_GZIP) ? GZIP : coding;
+    if (!encoding.equals(GZIP) && !encoding.equals(DEFLATE)) {
+      return request;
+    }
+    RequestBody body = new RequestBody(() -> inflate(encoding, request.body(), maxSize), -1);
+    return without(without(request, CONTENT_ENCODING), CONTENT_LENGTH).withBody(body);
+  }
+
+  // a body that could not be inflated is answered with 413 when it is too big, or 400 when it is not valid
+  static Option<HttpResponse> rejected(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof InvalidBody) {
+        return Option.some(new HttpResponse(((InvalidBody) cause).status, Bytes.empty()));
+      }
+    }
+    return Option.none();
+  }
+
+  // the best of gzip and deflate by quality, gzip wins ties
+  private static String negotiate(String acceptEncoding) {
+    float gzip = -1;
+    float deflate = -1;
+    float any = -1;
+    for (String item : acceptEncoding.split(",")) {
+      String[] parts = item.trim().split(";");
+      String coding = parts[0].trim().toLowerCase();
+      float quality = quality(parts);
+      if (coding.equals(GZIP)) {
+        gzip = quality;
+      } else if (coding.equals(DEFLATE)) {
+        deflate = quality;
+      } else if (coding.equals("*")) {
+        any = quality;
+      }
+    }
+    // codings not listed take the quality of the wildcard, if any
+    if (gzip < 0) {
+      gzip = any;
+    }
+    if (deflate < 0) {
+      deflate = any;
+    }
+    if (gzip > 0 && gzip >= deflate) {
+      return GZIP;
+    }
+    return deflate > 0 ? DEFLATE : null;
+  }
+
+  private static float quality(String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      String param = parts[i].trim();
+      if (param.startsWith("q=")) {
+        try {
+          return Float.parseFloat(param.substring(2));
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  // header names are not normalized in requests built by hand
+  private static String header(HttpHeaders headers, String name) {
+    StringBuilder result = new StringBuilder();
+    headers.forEach((key, value) -> {
+      if (key.equalsIgnoreCase(name)) {
+        result.append(result.length() > 0 ? "," : "").append(value);
+      }
+    });
+    return result.toString();
+  }
+
+  private static HttpRequest without(HttpRequest request, String name) {
+    HttpRequest[] result = { request };
+    request.headers().forEach((key, value) -> {
+      if (key.equalsIgnoreCase(name)) {
+        result[0] = result[0].withoutHeader(key);
+      }
+    });
+    return result[0];
+  }
+
+  private static InputStream inflate(String encoding, Bytes body, int maxSize) {
+    try {
+      InputStream input = body.toInputStream();
+      return new Limited(GZIP.equals(encoding) ? new GZIPInputStream(input) : new InflaterInputStream(input), maxSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException(new InvalidBody(HttpStatus.BAD_REQUEST, "invalid " + encoding + " body", e));
+    }
+  }
+
+  private static Bytes compress(String encoding, Bytes body) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(body.size() / 2);
+    try (OutputStream compressor = GZIP.equals(encoding)
+          ? new GZIPOutputStream(output) : new DeflaterOutputStream(output)) {
+      compressor.write(body.toArray());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return Bytes.fromArray(output.toByteArray());
+  }
+
+  // compressed bodies by encoding and body instance, bounded by the size of the bodies it keeps,
+  // constant stubs return the same instance every time, so the content is never hashed nor compared
+  private static final class Cache {
+
+    private final Map<Key, Bytes> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxSize;
+    private long size;
+
+    private Cache(long maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    private Bytes get(String encoding, Bytes body) {
+      Key key = new Key(encoding, body);
+      synchronized (this) {
+        Bytes cached = entries.get(key);
+        if (cached != null) {
+          return cached;
+        }
+      }
+      Bytes compressed = compress(encoding, body);
+      long weight = (long) body.size() + compressed.size();
+      if (weight > maxSize) {
+        return compressed;
+      }
+      synchronized (this) {
+        if (entries.put(key, compressed) == null) {
+          size += weight;
+        }
+        Iterator<Map.Entry<Key, Bytes>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+          Map.Entry<Key, Bytes> eldest = iterator.next();
+          size -= (long) eldest.getKey().body.size() + eldest.getValue().size();
+          iterator.remove();
+        }
+      }
+      return compressed;
+    }
+  }
+
+  // fails instead of inflating a body bigger than the limit, a corrupt or truncated body fails as invalid
+  private static final class Limited extends FilterInputStream {
+
+    private final int maxSize;
+    private long count;
+
+    private Limited(InputStream input, int maxSize) {
+      super(input);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value;
+      try {
+        value = super.read();
+      } catch (ZipException | EOFException e) {
+        throw new InvalidBody(HttpStatus.BAD_REQUEST, "invalid compressed body", e);
+      }
+      if (value >= 0) {
+        check(1);
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read;
+      try {
+        read = super.read(buffer, offset, length);
+      } catch (ZipException | EOFException e) {
+        throw new InvalidBody(HttpStatus.BAD_REQUEST, "invalid compressed body", e);
+      }
+      if (read > 0) {
+        check(read);
+      }
+      return read;
+    }
+
+    private void check(int read) throws IOException {
+      count += read;
+      if (count > maxSize) {
+        throw new InvalidBody(HttpStatus.PAYLOAD_TOO_LARGE, "decompressed body bigger than " + maxSize + " bytes", null);
+      }
+    }
+  }
+
+  private static final class InvalidBody extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+
+    private InvalidBody(HttpStatus status, String message, Throwable cause) {
+      super(message, cause);
+      this.status = requireNonNull(status);
+    }
+  }
+
+  private static final class Key {
+
+    private final String encoding;
+    private final Bytes body;
+    private final int hash;
+
+    private Key(String encoding, Bytes body) {
+      this.encoding = requireNonNull(encoding);
+      this.body = requireNonNull(body);
+      this.hash = 31 * encoding.hashCode() + System.identityHashCode(body);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return encoding.equals(other.encoding) && body == other.body;
+    }
+  }
+}
@@ -35,6 +35,10 @@ public final class Extractors {
     return request -> request.pathParam(position);
   }
 
+  public static Function1<HttpRequest, String> pathParam(String name) {
+    return request -> request.pathParam(name);
+  }
+
   public static <T> Function1<HttpRequest, T> jsonTo(Type type) {
     return body().andThen(Deserializers.jsonTo(type));
   }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// a region of a file, the server can send it with FileChannel.transferTo without copying it into the heap
+public final class FileStream implements ResponseStream {
+
+  private final Path path;
+  private final long position;
+  private final long count;
+
+  private FileStream(Path path, long position, long count) {
+    if (position < 0 || count < 0) {
+      throw new IllegalArgumentException("invalid region: " + position + "+" + count);
+    }
+    this.path = requireNonNull(path);
+    this.position = position;
+    this.count = count;
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  public long position() {
+    return position;
+  }
+
+  @Override
+  public long length() {
+    return count;
+  }
+
+  public FileChannel openChannel() throws IOException {
+    return FileChannel.open(path, StandardOpenOption.READ);
+  }
+
+  @Override
+  public ReadableByteChannel open() throws IOException {
+    FileChannel channel = openChannel();
+    channel.position(position);
+    return new Region(channel, count);
+  }
+
+  @Override
+  public String toString() {
+    return "FileStream(" + path + " " + position + "+" + count + ")";
+  }
+
+  public static FileStream of(Path path) {
+    try {
+      return new FileStream(path, 0, Files.size(path));
+    } catch (IOException e) {
+      throw new UncheckedIOException("unable to read file " + path, e);
+    }
+  }
+
+  public static FileStream of(Path path, long position, long count) {
+    return new FileStream(path, position, count);
+  }
+
+  private static final class Region implements ReadableByteChannel {
+
+    private final FileChannel channel;
+    private long remaining;
+
+    private Region(FileChannel channel, long remaining) {
+      this.channel = requireNonNull(channel);
+      this.remaining = remaining;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int limit = buffer.limit();
+      if (buffer.remaining() > remaining) {
+        buffer.limit(buffer.position() + (int) remaining);
+      }
+      try {
+        int read = channel.read(buffer);
+        if (read > 0) {
+          remaining -= read;
+        }
+        return read;
+      } finally {
+        buffer.limit(limit);
+      }
+    }
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+// status line, headers and body encoded once, the server only adds the headers that depend on the connection
+public final class FrozenResponse {
+
+  private static final String CONTENT_LENGTH = "Content-Length";
+  private static final String TRANSFER_ENCODING = "Transfer-Encoding";
+  private static final String CONNECTION = "Connection";
+
+  private final byte[] wire;
+  private final int split;
+
+  private FrozenResponse(byte[] wire, int split) {
+    this.wire = wire;
+    this.split = split;
+  }
+
+  // status line and headers, without the empty line that ends them
+  public ByteBuffer head() {
+    return ByteBuffer.wrap(wire, 0, split).slice().asReadOnlyBuffer();
+  }
+
+  // the empty line that ends the headers, followed by the body
+  public ByteBuffer tail() {
+    return ByteBuffer.wrap(wire, split, wire.length - split).slice().asReadOnlyBuffer();
+  }
+
+  static FrozenResponse encode(HttpResponse response) {
+    StringBuilder head = new StringBuilder(128);
+    HttpStatus status = response.status();
+    head.append("HTTP/1.1 ").append(status.code()).append(' ').append(status.reason()).append("\r\n");
+    response.headers().forEach((key, value) -> {
+      if (!CONTENT_LENGTH.equalsIgnoreCase(key) && !TRANSFER_ENCODING.equalsIgnoreCase(key)
+          && !CONNECTION.equalsIgnoreCase(key)) {
+        head.append(key).append(": ").append(value).append("\r\n");
+      }
+    });
+    boolean hasBody = status.hasBody();
+    if (hasBody) {
+      head.append(CONTENT_LENGTH).append(": ").append(response.body().size()).append("\r\n");
+    }
+    byte[] headBytes = head.toString().getBytes(ISO_8859_1);
+    ByteArrayOutputStream wire = new ByteArrayOutputStream(headBytes.length + 2 + response.body().size());
+    wire.write(headBytes, 0, headBytes.length);
+    wire.write('\r');
+    wire.write('\n');
+    if (hasBody) {
+      byte[] body = response.body().toArray();
+      wire.write(body, 0, body.length);
+    }
+    return new FrozenResponse(wire.toByteArray(), headBytes.length);
+  }
+}
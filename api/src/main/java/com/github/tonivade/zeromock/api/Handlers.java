@@ -6,15 +6,16 @@ package com.github.tonivade.zeromock.api;
 
 import static com.github.tonivade.zeromock.api.Bytes.asBytes;
 
+import java.nio.file.Path;
+
 import com.github.tonivade.purefun.Function1;
-import com.github.tonivade.purefun.Producer;
 
 public final class Handlers {
 
   private Handlers() {}
 
   public static RequestHandler ok() {
-    return asFunction(Responses::ok);
+    return constant(Responses.ok());
   }
 
   public static RequestHandler ok(String body) {
@@ -22,7 +23,19 @@ public final class Handlers {
   }
 
   public static RequestHandler ok(Bytes body) {
-    return ok(request -> body);
+    return constant(Responses.ok(body));
+  }
+
+  public static RequestHandler ok(ResponseStream body) {
+    return request -> Responses.ok(body);
+  }
+
+  public static RequestHandler ok(Path file) {
+    return ok(FileStream.of(file));
+  }
+
+  public static RequestHandler mapped(Path file) {
+    return ok(MappedStream.of(file));
   }
 
   public static RequestHandler ok(Function1<HttpRequest, Bytes> handler) {
@@ -34,7 +47,7 @@ public final class Handlers {
   }
 
   public static RequestHandler created(Bytes body) {
-    return created(request -> body);
+    return constant(Responses.created(body));
   }
 
   public static RequestHandler created(Function1<HttpRequest, Bytes> handler) {
@@ -42,15 +55,15 @@ public final class Handlers {
   }
 
   public static RequestHandler noContent() {
-    return asFunction(Responses::noContent);
+    return constant(Responses.noContent());
   }
 
   public static RequestHandler forbidden() {
-    return asFunction(Responses::forbidden);
+    return constant(Responses.forbidden());
   }
 
   public static RequestHandler badRequest() {
-    return asFunction(Responses::badRequest);
+    return constant(Responses.badRequest());
   }
 
   public static RequestHandler badRequest(String body) {
@@ -58,7 +71,7 @@ public final class Handlers {
   }
 
   public static RequestHandler badRequest(Bytes body) {
-    return badRequest(request -> body);
+    return constant(Responses.badRequest(body));
   }
 
   public static RequestHandler badRequest(Function1<HttpRequest, Bytes> handler) {
@@ -66,7 +79,7 @@ public final class Handlers {
   }
 
   public static RequestHandler notFound() {
-    return asFunction(Responses::notFound);
+    return constant(Responses.notFound());
   }
 
   public static RequestHandler notFound(String body) {
@@ -74,7 +87,7 @@ public final class Handlers {
   }
 
   public static RequestHandler notFound(Bytes body) {
-    return notFound(request -> body);
+    return constant(Responses.notFound(body));
   }
 
   public static RequestHandler notFound(Function1<HttpRequest, Bytes> handler) {
@@ -82,7 +95,7 @@ public final class Handlers {
   }
 
   public static RequestHandler unauthorized() {
-    return asFunction(Responses::unauthorized);
+    return constant(Responses.unauthorized());
   }
 
   public static RequestHandler unauthorized(String body) {
@@ -90,7 +103,7 @@ public final class Handlers {
   }
 
   public static RequestHandler unauthorized(Bytes body) {
-    return unauthorized(request -> body);
+    return constant(Responses.unauthorized(body));
   }
 
   public static RequestHandler unauthorized(Function1<HttpRequest, Bytes> handler) {
@@ -98,7 +111,7 @@ public final class Handlers {
   }
 
   public static RequestHandler error() {
-    return asFunction(Responses::error);
+    return constant(Responses.error());
   }
 
   public static RequestHandler error(String body) {
@@ -106,7 +119,7 @@ public final class Handlers {
   }
 
   public static RequestHandler error(Bytes body) {
-    return error(request -> body);
+    return constant(Responses.error(body));
   }
 
   public static RequestHandler error(Function1<HttpRequest, Bytes> handler) {
@@ -114,7 +127,7 @@ public final class Handlers {
   }
 
   public static RequestHandler unavailable() {
-    return asFunction(Responses::unavailable);
+    return constant(Responses.unavailable());
   }
 
   public static RequestHandler unavailable(String body) {
@@ -122,14 +135,16 @@ public final class Handlers {
   }
 
   public static RequestHandler unavailable(Bytes body) {
-    return unavailable(request -> body);
+    return constant(Responses.unavailable(body));
   }
 
   public static RequestHandler unavailable(Function1<HttpRequest, Bytes> handler) {
     return handler.andThen(Responses::unavailable)::apply;
   }
 
-  private static RequestHandler asFunction(Producer<HttpResponse> producer) {
-    return producer.asFunction()::apply;
+  // constant responses are encoded once, when the handler is created
+  private static RequestHandler constant(HttpResponse response) {
+    HttpResponse frozen = response.freeze();
+    return request -> frozen;
   }
 }
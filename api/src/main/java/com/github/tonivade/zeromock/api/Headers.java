@@ -31,4 +31,10 @@ public final class Headers {
   public static PostFilter contentXml() {
     return contentType("text/xml");
   }
+
+  // gzip or deflate as requested by Accept-Encoding, compressed bodies are cached so constant stubs are compressed once.
+  // it needs the request, so it wraps the handler instead of being a post filter
+  public static RequestHandler compress(RequestHandler handler) {
+    return request -> Compression.encode(request, handler.apply(request));
+  }
 }
@@ -33,6 +33,10 @@ public final class HttpHeaders {
     return new HttpHeaders(headers.merge(key, ImmutableSet.of(value), (a, b) -> a.union(b)));
   }
 
+  public HttpHeaders withoutHeader(String key) {
+    return new HttpHeaders(headers.remove(key));
+  }
+
   public boolean isEmpty() {
     return headers.isEmpty();
   }
@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 
+import com.github.tonivade.purefun.Consumer2;
 import com.github.tonivade.purefun.Equal;
 import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.purefun.data.ImmutableMap;
@@ -58,6 +59,10 @@ public final class HttpParams {
     return new HttpParams(params.put(key, value));
   }
 
+  public void forEach(Consumer2<String, String> consumer) {
+    params.forEach((key, value) -> consumer.accept(key, value));
+  }
+
   public String toQueryString() {
     return params.isEmpty() ? EMPTY : paramsToString();
   }
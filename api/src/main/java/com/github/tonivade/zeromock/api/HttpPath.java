@@ -9,7 +9,6 @@ import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
 
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 import com.github.tonivade.purefun.Equal;
 import com.github.tonivade.purefun.data.ImmutableList;
@@ -24,9 +23,14 @@ public final class HttpPath {
   private static final String PARAM_PREFIX = ":";
 
   private final ImmutableList<PathElement> value;
+  // array copies of value used when matching, not part of equals
+  private final PathElement[] elements;
+  private final String[] segments;
 
   private HttpPath(ImmutableList<PathElement> path) {
     this.value = requireNonNull(path);
+    this.elements = value.stream().toArray(PathElement[]::new);
+    this.segments = value.stream().map(PathElement::toSegment).toArray(String[]::new);
   }
 
   public HttpPath dropOneLevel() {
@@ -38,15 +42,22 @@ public final class HttpPath {
   }
 
   public Option<PathElement> getAt(int position) {
-    return value.drop(position).head();
+    if (position < 0 || position >= elements.length) {
+      return Option.none();
+    }
+    return Option.some(elements[position]);
   }
 
   public boolean match(HttpPath other) {
-    return Pattern.matches(other.toPattern(), this.toPattern());
+    return segments.length == other.elements.length && matchAll(other);
   }
 
   public boolean startsWith(HttpPath other) {
-    return Pattern.matches(other.toPattern() + ".*", this.toPattern());
+    return segments.length >= other.elements.length && matchAll(other);
+  }
+
+  String[] segments() {
+    return segments;
   }
 
   public String toPath() {
@@ -68,8 +79,13 @@ public final class HttpPath {
     return "Path(" + value.toString() + ")";
   }
 
-  private String toPattern() {
-    return ROOT + value.stream().map(PathElement::toPattern).collect(joining(ROOT));
+  private boolean matchAll(HttpPath pattern) {
+    for (int i = 0; i < pattern.elements.length; i++) {
+      if (!pattern.elements[i].matches(segments[i])) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public static HttpPath of(String... path) {
@@ -123,7 +139,9 @@ public final class HttpPath {
       return value;
     }
 
-    protected abstract String toPattern();
+    protected abstract boolean matches(String segment);
+
+    protected abstract String toSegment();
   }
 
   private static final class PathValue extends PathElement {
@@ -132,7 +150,12 @@ public final class HttpPath {
     }
 
     @Override
-    protected String toPattern() {
+    protected boolean matches(String segment) {
+      return super.value().equals(segment);
+    }
+
+    @Override
+    protected String toSegment() {
       return super.value();
     }
   }
@@ -143,8 +166,25 @@ public final class HttpPath {
     }
 
     @Override
-    protected String toPattern() {
-      return "\\w+";
+    protected boolean matches(String segment) {
+      if (segment.isEmpty()) {
+        return false;
+      }
+      for (int i = 0; i < segment.length(); i++) {
+        if (!isWordChar(segment.charAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isWordChar(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    @Override
+    protected String toSegment() {
+      return PARAM_PREFIX + super.value();
     }
   }
 }
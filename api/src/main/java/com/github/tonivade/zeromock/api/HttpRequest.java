@@ -5,11 +5,14 @@
 package com.github.tonivade.zeromock.api;
 
 import static com.github.tonivade.zeromock.api.Bytes.asBytes;
+import static java.util.Objects.isNull;
 import static java.util.Objects.requireNonNull;
 
+import java.io.InputStream;
 import java.util.Objects;
 
 import com.github.tonivade.purefun.Equal;
+import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.zeromock.api.HttpPath.PathElement;
 
 public final class HttpRequest {
@@ -17,15 +20,17 @@ public final class HttpRequest {
   private static final Equal<HttpRequest> EQUAL = Equal.<HttpRequest>of()
       .comparing(HttpRequest::method)
       .comparing(HttpRequest::path)
-      .comparing(HttpRequest::body)
+      .comparing(request -> request.body)
       .comparing(HttpRequest::headers)
       .comparing(HttpRequest::params);
 
   private final HttpMethod method;
   private final HttpPath path;
-  private final Bytes body;
+  private final RequestBody body;
   private final HttpHeaders headers;
   private final HttpParams params;
+  // bound by the route that matched, not part of equals
+  private final PathBinding pathParams;
 
   public HttpRequest(HttpMethod method, HttpPath path) {
     this(method, path, Bytes.empty(), HttpHeaders.empty(), HttpParams.empty());
@@ -33,11 +38,23 @@ public final class HttpRequest {
 
   public HttpRequest(HttpMethod method, HttpPath path, Bytes body,
                      HttpHeaders headers, HttpParams params) {
+    this(method, path, new RequestBody(body), headers, params, PathBinding.empty());
+  }
+
+  // the body is read on first use, contentLength is only a hint, -1 if unknown
+  public HttpRequest(HttpMethod method, HttpPath path, InputStream body, int contentLength,
+                     HttpHeaders headers, HttpParams params) {
+    this(method, path, new RequestBody(body, contentLength), headers, params, PathBinding.empty());
+  }
+
+  private HttpRequest(HttpMethod method, HttpPath path, RequestBody body,
+                      HttpHeaders headers, HttpParams params, PathBinding pathParams) {
     this.method = requireNonNull(method);
     this.path = requireNonNull(path);
     this.body = requireNonNull(body);
     this.headers = requireNonNull(headers);
     this.params = requireNonNull(params);
+    this.pathParams = requireNonNull(pathParams);
   }
 
   public HttpMethod method() {
@@ -49,7 +66,24 @@ public final class HttpRequest {
   }
 
   public Bytes body() {
-    return body;
+    return body.get();
+  }
+
+  // only when the body was already read, a lazy body is not read here
+  public Option<Bytes> loadedBody() {
+    Bytes bytes = body.peek();
+    return bytes != null ? Option.some(bytes) : Option.none();
+  }
+
+  // once the body is consumed as a stream it is not available as bytes anymore
+  public InputStream bodyStream() {
+    return body.stream();
+  }
+
+  // reads the rest of a lazy body, so the request is still usable after the connection is closed
+  public HttpRequest detach() {
+    body.detach();
+    return this;
   }
 
   public HttpHeaders headers() {
@@ -68,16 +102,24 @@ public final class HttpRequest {
     return path.getAt(position).map(PathElement::value).getOrElseThrow(IllegalArgumentException::new);
   }
 
+  public String pathParam(String name) {
+    String value = pathParams.get(name);
+    if (isNull(value)) {
+      throw new IllegalArgumentException("path param not found: " + name);
+    }
+    return value;
+  }
+
   public String toUrl() {
     return path.toPath() + params.toQueryString();
   }
 
   public HttpRequest dropOneLevel() {
-    return new HttpRequest(method, path.dropOneLevel(), body, headers, params);
+    return new HttpRequest(method, path.dropOneLevel(), body, headers, params, PathBinding.empty());
   }
 
   public HttpRequest withHeader(String key, String value) {
-    return new HttpRequest(method, path, body, headers.withHeader(key, value), params);
+    return new HttpRequest(method, path, body, headers.withHeader(key, value), params, pathParams);
   }
 
   public HttpRequest withBody(String body) {
@@ -85,11 +127,23 @@ public final class HttpRequest {
   }
 
   public HttpRequest withBody(Bytes body) {
-    return new HttpRequest(method, path, body, headers, params);
+    return new HttpRequest(method, path, new RequestBody(body), headers, params, pathParams);
+  }
+
+  public HttpRequest withoutHeader(String key) {
+    return new HttpRequest(method, path, body, headers.withoutHeader(key), params, pathParams);
+  }
+
+  HttpRequest withBody(RequestBody body) {
+    return new HttpRequest(method, path, body, headers, params, pathParams);
   }
 
   public HttpRequest withParam(String key, String value) {
-    return new HttpRequest(method, path, body, headers, params.withParam(key, value));
+    return new HttpRequest(method, path, body, headers, params.withParam(key, value), pathParams);
+  }
+
+  HttpRequest withPathParams(PathBinding pathParams) {
+    return new HttpRequest(method, path, body, headers, params, pathParams);
   }
 
   @Override
@@ -10,26 +10,42 @@ import static java.util.Objects.requireNonNull;
 import java.util.Objects;
 
 import com.github.tonivade.purefun.Equal;
+import com.github.tonivade.purefun.type.Option;
 
 public final class HttpResponse {
 
   private static final Equal<HttpResponse> EQUAL = Equal.<HttpResponse>of()
       .comparing(HttpResponse::status)
       .comparing(HttpResponse::body)
-      .comparing(HttpResponse::headers);
+      .comparing(HttpResponse::headers)
+      .comparing(response -> response.stream);
 
   private final HttpStatus status;
   private final Bytes body;
   private final HttpHeaders headers;
+  private final ResponseStream stream;
+  // encoded copy of the rest of the fields, not part of equals
+  private final FrozenResponse frozen;
 
   public HttpResponse(HttpStatus status, Bytes body) {
     this(status, body, HttpHeaders.empty());
   }
 
   public HttpResponse(HttpStatus status, Bytes body, HttpHeaders headers) {
+    this(status, body, headers, null, null);
+  }
+
+  public HttpResponse(HttpStatus status, ResponseStream stream, HttpHeaders headers) {
+    this(status, Bytes.empty(), headers, requireNonNull(stream), null);
+  }
+
+  private HttpResponse(HttpStatus status, Bytes body, HttpHeaders headers,
+                       ResponseStream stream, FrozenResponse frozen) {
     this.status = requireNonNull(status);
     this.body = requireNonNull(body);
     this.headers = requireNonNull(headers);
+    this.stream = stream;
+    this.frozen = frozen;
   }
 
   public HttpStatus status() {
@@ -44,13 +60,33 @@ public final class HttpResponse {
     return headers;
   }
 
+  // streamed responses have an empty body, the content is only read when it is sent
+  public Option<ResponseStream> stream() {
+    return stream != null ? Option.some(stream) : Option.none();
+  }
+
+  public Option<FrozenResponse> frozen() {
+    return frozen != null ? Option.some(frozen) : Option.none();
+  }
+
+  // encodes the response once, so constant responses can be sent without building them again
+  public HttpResponse freeze() {
+    if (stream != null) {
+      throw new IllegalStateException("a streamed response cannot be frozen");
+    }
+    if (frozen != null) {
+      return this;
+    }
+    return new HttpResponse(status, body, headers, null, FrozenResponse.encode(this));
+  }
+
   public HttpResponse withHeader(String key, String value) {
-    return new HttpResponse(status, body, headers.withHeader(key, value));
+    return new HttpResponse(status, body, headers.withHeader(key, value), stream, null);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(status, body, headers);
+    return Objects.hash(status, body, headers, stream);
   }
 
   @Override
@@ -60,6 +96,6 @@ public final class HttpResponse {
 
   @Override
   public String toString() {
-    return "HttpResponse(" + status + " " + asString(body) + ")";
+    return "HttpResponse(" + status + " " + (stream != null ? "<stream>" : asString(body)) + ")";
   }
 }
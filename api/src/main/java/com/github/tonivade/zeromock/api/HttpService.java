@@ -9,7 +9,6 @@ import static java.util.Objects.requireNonNull;
 import com.github.tonivade.purefun.Function2;
 import com.github.tonivade.purefun.Matcher1;
 import com.github.tonivade.purefun.instances.IdInstances;
-import com.github.tonivade.purefun.type.IdOf;
 import com.github.tonivade.purefun.type.Id_;
 import com.github.tonivade.purefun.type.Option;
 
@@ -58,7 +57,11 @@ public final class HttpService {
   }
 
   public Option<HttpResponse> execute(HttpRequest request) {
-    return serviceK.execute(request).fix(IdOf::narrowK).get();
+    return serviceK.executeSync(request);
+  }
+
+  public HttpService cacheRoutes(int maxSize) {
+    return new HttpService(serviceK.cacheRoutes(maxSize));
   }
 
   public HttpService combine(HttpService other) {
@@ -4,50 +4,46 @@
  */
 package com.github.tonivade.zeromock.api;
 
-import static com.github.tonivade.purefun.Function1.fail;
-import static com.github.tonivade.purefun.Matcher1.never;
 import static com.github.tonivade.zeromock.api.Matchers.all;
-import static com.github.tonivade.zeromock.api.Matchers.startsWith;
 import static com.github.tonivade.zeromock.api.PreFilterK.filter;
 import static com.github.tonivade.zeromock.api.Responses.notFound;
 import static java.util.Objects.requireNonNull;
-import com.github.tonivade.purefun.Function1;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import com.github.tonivade.purefun.Function2;
 import com.github.tonivade.purefun.Kind;
 import com.github.tonivade.purefun.Matcher1;
-import com.github.tonivade.purefun.PartialFunction1;
 import com.github.tonivade.purefun.Witness;
-import com.github.tonivade.purefun.instances.OptionInstances;
+import com.github.tonivade.purefun.instances.IdInstances;
 import com.github.tonivade.purefun.type.Either;
+import com.github.tonivade.purefun.type.Id;
 import com.github.tonivade.purefun.type.Option;
-import com.github.tonivade.purefun.type.OptionOf;
-import com.github.tonivade.purefun.typeclasses.For;
 import com.github.tonivade.purefun.typeclasses.Monad;
 
 public final class HttpServiceK<F extends Witness> {
 
   private final String name;
   private final Monad<F> monad;
-  private final PartialFunction1<HttpRequest, Kind<F, HttpResponse>> mappings;
-  private final Function1<HttpRequest, Kind<F, Either<HttpResponse, HttpRequest>>> preFilters;
-  private final Function1<HttpResponse, Kind<F, HttpResponse>> postFilters;
+  private final RouteTable<RequestHandlerK<F>> mappings;
+  private final PreFilterK<F>[] preFilters;
+  private final PostFilterK<F>[] postFilters;
+  private final boolean sync;
 
+  @SuppressWarnings("unchecked")
   public HttpServiceK(String name, Monad<F> monad) {
-    this(name, monad,
-        PartialFunction1.of(never(), fail(IllegalStateException::new)),
-        request -> monad.pure(Either.right(request)),
-        monad::<HttpResponse>pure);
+    this(name, monad, RouteTable.empty(), new PreFilterK[0], new PostFilterK[0]);
   }
 
   private HttpServiceK(String name, Monad<F> monad,
-                       PartialFunction1<HttpRequest, Kind<F, HttpResponse>> mappings,
-                       Function1<HttpRequest, Kind<F, Either<HttpResponse, HttpRequest>>> preFilters,
-                       Function1<HttpResponse, Kind<F, HttpResponse>> postFilters) {
+                       RouteTable<RequestHandlerK<F>> mappings,
+                       PreFilterK<F>[] preFilters,
+                       PostFilterK<F>[] postFilters) {
     this.name = requireNonNull(name);
     this.monad = requireNonNull(monad);
     this.mappings = requireNonNull(mappings);
     this.preFilters = requireNonNull(preFilters);
     this.postFilters = requireNonNull(postFilters);
+    this.sync = IdInstances.monad().getClass().isInstance(monad);
   }
 
   public String name() {
@@ -57,9 +53,13 @@ public final class HttpServiceK<F extends Witness> {
   public HttpServiceK<F> mount(String path, HttpServiceK<F> other) {
     requireNonNull(path);
     requireNonNull(other);
-    return _addMapping(
-        startsWith(path).and(req -> other.mappings.isDefinedAt(req.dropOneLevel())),
-        req -> monad.map(other.execute(req.dropOneLevel()), option -> option.getOrElse(notFound())));
+    return new HttpServiceK<>(
+        this.name,
+        this.monad,
+        this.mappings.mount(HttpPath.from(path), other::resolve),
+        this.preFilters,
+        this.postFilters
+    );
   }
 
   public HttpServiceK<F> exec(RequestHandlerK<F> handler) {
@@ -83,16 +83,60 @@ public final class HttpServiceK<F extends Witness> {
   }
 
   public Kind<F, Option<HttpResponse>> execute(HttpRequest request) {
-    Function1<HttpRequest, Option<Kind<F, HttpResponse>>> mappingsWithPostFilters =
-        mappings.andThen(value -> monad.flatMap(value, postFilters::apply)).lift();
+    if (preFilters.length == 0) {
+      return dispatch(request);
+    }
+    return monad.flatMap(preFilter(request, 0),
+        either -> either.fold(res -> monad.pure(Option.some(res)), this::dispatch));
+  }
+
+  public HttpServiceK<F> cacheRoutes(int maxSize) {
+    return new HttpServiceK<>(
+        this.name,
+        this.monad,
+        this.mappings.withCache(maxSize),
+        this.preFilters,
+        this.postFilters
+    );
+  }
+
+  // builds the route index ahead of the first request
+  public HttpServiceK<F> prepare() {
+    mappings.prepare();
+    return this;
+  }
 
-    return For.with(monad)
-        .then(preFilters.apply(request))
-        .flatMap(either -> either.fold(
-            res -> monad.pure(Option.some(res)),
-            mappingsWithPostFilters.andThen(option -> OptionInstances.traverse().sequence(monad, option))))
-        .map(OptionOf::narrowK)
-        .run();
+  public boolean isSync() {
+    return sync;
+  }
+
+  public Option<HttpResponse> executeSync(HttpRequest request) {
+    if (!sync) {
+      throw new UnsupportedOperationException("service " + name + " is not synchronous");
+    }
+    HttpRequest current = request;
+    for (PreFilterK<F> filter : preFilters) {
+      Either<HttpResponse, HttpRequest> either = unwrap(filter.apply(current));
+      if (either.isLeft()) {
+        return Option.some(either.getLeft());
+      }
+      current = either.getRight();
+    }
+    HttpResponse response;
+    try {
+      Option<RouteMatch<RequestHandlerK<F>>> match = mappings.lookup(current);
+      if (!match.isPresent()) {
+        return Option.none();
+      }
+      RouteMatch<RequestHandlerK<F>> route = match.get();
+      response = unwrap(route.value().apply(route.request()));
+    } catch (UncheckedIOException e) {
+      return rejected(e);
+    }
+    for (PostFilterK<F> filter : postFilters) {
+      response = unwrap(filter.apply(response));
+    }
+    return Option.some(response);
   }
 
   public HttpServiceK<F> combine(HttpServiceK<F> other) {
@@ -100,12 +144,9 @@ public final class HttpServiceK<F extends Witness> {
     return new HttpServiceK<>(
         this.name + "+" + other.name,
         this.monad,
-        this.mappings.orElse(other.mappings),
-        this.preFilters.andThen(
-            value -> monad.flatMap(value,
-                either -> either.fold(
-                    response -> monad.pure(Either.left(response)), other.preFilters))),
-        this.postFilters.andThen(value -> monad.flatMap(value, other.postFilters))::apply
+        this.mappings.append(other.mappings),
+        concat(this.preFilters, other.preFilters),
+        concat(this.postFilters, other.postFilters)
     );
   }
 
@@ -117,13 +158,61 @@ public final class HttpServiceK<F extends Witness> {
     return _addPreFilter(filter(monad, matcher, handler));
   }
 
+  // only the failures thrown while the route is selected or the handler is called are rejected,
+  // not the ones raised later by the effect
+  private Kind<F, Option<HttpResponse>> dispatch(HttpRequest request) {
+    try {
+      return mappings.lookup(request)
+          .map(match -> monad.map(run(match), Option::some))
+          .getOrElse(() -> monad.pure(Option.none()));
+    } catch (UncheckedIOException e) {
+      return monad.pure(rejected(e));
+    }
+  }
+
+  private Kind<F, HttpResponse> run(RouteMatch<RequestHandlerK<F>> match) {
+    Kind<F, HttpResponse> response = match.value().apply(match.request());
+    for (PostFilterK<F> filter : postFilters) {
+      response = monad.flatMap(response, filter);
+    }
+    return response;
+  }
+
+  private Kind<F, Either<HttpResponse, HttpRequest>> preFilter(HttpRequest request, int index) {
+    Kind<F, Either<HttpResponse, HttpRequest>> result = preFilters[index].apply(request);
+    if (index == preFilters.length - 1) {
+      return result;
+    }
+    return monad.flatMap(result,
+        either -> either.isLeft() ? monad.pure(either) : preFilter(either.getRight(), index + 1));
+  }
+
+  private Option<RouteMatch<RequestHandlerK<F>>> resolve(HttpRequest request) {
+    return mappings.lookup(request)
+        .map(match -> new RouteMatch<RequestHandlerK<F>>(request, req -> runMounted(req, match)));
+  }
+
+  private Kind<F, HttpResponse> runMounted(HttpRequest request, RouteMatch<RequestHandlerK<F>> match) {
+    if (preFilters.length == 0) {
+      return run(match);
+    }
+    return monad.flatMap(preFilter(request, 0),
+        either -> either.fold(monad::<HttpResponse>pure, filtered -> {
+          // the route was selected before the pre filters, it is only valid if they didn't change the request
+          if (filtered == request) {
+            return run(match);
+          }
+          return monad.map(dispatch(filtered), option -> option.getOrElse(notFound()));
+        }));
+  }
+
   private HttpServiceK<F> _addMapping(Matcher1<HttpRequest> matcher, RequestHandlerK<F> handler) {
     requireNonNull(matcher);
     requireNonNull(handler);
     return new HttpServiceK<>(
         this.name,
         this.monad,
-        this.mappings.orElse(PartialFunction1.of(matcher, handler::apply)),
+        this.mappings.add(matcher, handler),
         this.preFilters,
         this.postFilters
     );
@@ -135,10 +224,7 @@ public final class HttpServiceK<F extends Witness> {
         this.name,
         this.monad,
         this.mappings,
-        this.preFilters.andThen(
-            value -> monad.flatMap(value,
-                either -> either.fold(
-                    response -> monad.pure(Either.left(response)), filter))),
+        append(this.preFilters, filter),
         this.postFilters
     );
   }
@@ -150,10 +236,37 @@ public final class HttpServiceK<F extends Witness> {
         this.monad,
         this.mappings,
         this.preFilters,
-        this.postFilters.andThen(value -> monad.flatMap(value, filter))::apply
+        append(this.postFilters, filter)
     );
   }
 
+  // a compressed body that can not be inflated is answered here, any other failure goes on
+  private static Option<HttpResponse> rejected(UncheckedIOException error) {
+    Option<HttpResponse> response = Compression.rejected(error);
+    if (!response.isPresent()) {
+      throw error;
+    }
+    return response;
+  }
+
+  private static <T> T[] append(T[] array, T value) {
+    T[] result = Arrays.copyOf(array, array.length + 1);
+    result[array.length] = value;
+    return result;
+  }
+
+  private static <T> T[] concat(T[] first, T[] second) {
+    T[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  // only valid for services running on Id, where a value is always available
+  @SuppressWarnings("unchecked")
+  private static <T> T unwrap(Kind<?, T> value) {
+    return ((Id<T>) value).get();
+  }
+
   public static final class MappingBuilderK<F extends Witness, T> {
     private final Function2<Matcher1<HttpRequest>, RequestHandlerK<F>, T> finisher;
     private Matcher1<HttpRequest> matcher;
@@ -6,40 +6,53 @@ package com.github.tonivade.zeromock.api;
 
 public enum HttpStatus {
   
-  OK(200),
-  CREATED(201),
-  ACCEPTED(202),
-  NO_CONTENT(204),
-  PARTIAL_CONTENT(206),
+  OK(200, "OK"),
+  CREATED(201, "Created"),
+  ACCEPTED(202, "Accepted"),
+  NO_CONTENT(204, "No Content"),
+  PARTIAL_CONTENT(206, "Partial Content"),
   
-  MOVED_PERMANENTLY(301),
-  MOVED_TEMPORARILY(302),
+  MOVED_PERMANENTLY(301, "Moved Permanently"),
+  MOVED_TEMPORARILY(302, "Found"),
 
-  BAD_REQUEST(400), 
-  UNAUTHORIZED(401), 
-  FORBIDDEN(403), 
-  NOT_FOUND(404), 
-  METHOD_NOT_ALLOWED(405), 
-  PROXY_AUTHENTICATION_REQUIRED(407), 
-  REQUEST_TIMEOUT(408), 
-  UNSUPPORTED_MEDIA_TYPE(415), 
+  BAD_REQUEST(400, "Bad Request"), 
+  UNAUTHORIZED(401, "Unauthorized"), 
+  FORBIDDEN(403, "Forbidden"), 
+  NOT_FOUND(404, "Not Found"), 
+  METHOD_NOT_ALLOWED(405, "Method Not Allowed"), 
+  PROXY_AUTHENTICATION_REQUIRED(407, "Proxy Authentication Required"), 
+  REQUEST_TIMEOUT(408, "Request Timeout"), 
+  PAYLOAD_TOO_LARGE(413, "Payload Too Large"), 
+  UNSUPPORTED_MEDIA_TYPE(415, "Unsupported Media Type"), 
   
-  INTERNAL_SERVER_ERROR(500),
-  NOT_IMPLEMENTED(501),
-  BAD_GATEWAY(502),
-  SERVICE_UNAVAILABLE(503),
-  GATEWAY_TIMEOUT(504);
+  INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
+  NOT_IMPLEMENTED(501, "Not Implemented"),
+  BAD_GATEWAY(502, "Bad Gateway"),
+  SERVICE_UNAVAILABLE(503, "Service Unavailable"),
+  GATEWAY_TIMEOUT(504, "Gateway Timeout");
   
   private final int code;
+  private final String reason;
   
-  HttpStatus(int code) {
+  HttpStatus(int code, String reason) {
     this.code = code;
+    this.reason = reason;
   }
   
   public int code() {
     return code;
   }
 
+  // standard reason phrase, as sent in the status line
+  public String reason() {
+    return reason;
+  }
+
+  // informational, no content and not modified responses never have a body
+  public boolean hasBody() {
+    return code >= 200 && code != 204 && code != 304;
+  }
+
   public static HttpStatus fromCode(int code) {
     for (HttpStatus httpStatus : values()) {
       if (httpStatus.code == code) {
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// a file mapped in memory once, every request writes a view of the same buffer
+public final class MappedStream implements ResponseStream {
+
+  private final MappedByteBuffer buffer;
+
+  private MappedStream(MappedByteBuffer buffer) {
+    this.buffer = requireNonNull(buffer);
+  }
+
+  public ByteBuffer buffer() {
+    return buffer.asReadOnlyBuffer();
+  }
+
+  @Override
+  public long length() {
+    return buffer.capacity();
+  }
+
+  @Override
+  public ReadableByteChannel open() {
+    return new View(buffer());
+  }
+
+  @Override
+  public String toString() {
+    return "MappedStream(" + buffer.capacity() + ")";
+  }
+
+  public static MappedStream of(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("file too large to be mapped: " + path);
+      }
+      return new MappedStream(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IOException e) {
+      throw new UncheckedIOException("unable to map file " + path, e);
+    }
+  }
+
+  private static final class View implements ReadableByteChannel {
+
+    private final ByteBuffer source;
+    private boolean open = true;
+
+    private View(ByteBuffer source) {
+      this.source = requireNonNull(source);
+    }
+
+    @Override
+    public int read(ByteBuffer target) {
+      if (!source.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(source.remaining(), target.remaining());
+      ByteBuffer slice = source.duplicate();
+      slice.limit(slice.position() + count);
+      target.put(slice);
+      source.position(source.position() + count);
+      return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+    }
+  }
+}
@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.zeromock.api;
 
-import static com.github.tonivade.zeromock.api.Bytes.asString;
 import static com.github.tonivade.zeromock.api.HttpMethod.DELETE;
 import static com.github.tonivade.zeromock.api.HttpMethod.GET;
 import static com.github.tonivade.zeromock.api.HttpMethod.OPTIONS;
@@ -20,39 +19,39 @@ public final class Matchers {
   private Matchers() {}
   
   public static Matcher1<HttpRequest> all() {
-    return request -> true;
+    return RequestMatcher.all();
   }
 
   public static Matcher1<HttpRequest> method(HttpMethod method) {
-    return request -> request.method().equals(method);
+    return RequestMatcher.method(method);
   }
   
   public static Matcher1<HttpRequest> path(String url) {
-    return request -> request.path().match(HttpPath.from(url));
+    return RequestMatcher.path(HttpPath.from(url));
   }
   
   public static Matcher1<HttpRequest> startsWith(String url) {
-    return request -> request.path().startsWith(HttpPath.from(url));
+    return RequestMatcher.startsWith(HttpPath.from(url));
   }
   
   public static Matcher1<HttpRequest> param(String name) {
-    return request -> request.params().contains(name);
+    return RequestMatcher.param(name);
   }
   
   public static Matcher1<HttpRequest> param(String name, String value) {
-    return request -> request.params().get(name).map(value::equals).getOrElse(false);
+    return RequestMatcher.param(name, value);
   }
 
   public static Matcher1<HttpRequest> header(String key) {
-    return request -> request.headers().contains(key);
+    return RequestMatcher.header(key);
   }
 
   public static Matcher1<HttpRequest> header(String key, String value) {
-    return header(key, values -> values.contains(value));
+    return RequestMatcher.header(key, value);
   }
 
   public static Matcher1<HttpRequest> header(String key, Matcher1<ImmutableSet<String>> matcher) {
-    return header(key).and(request -> matcher.match(request.headers().get(key)));
+    return RequestMatcher.header(key, matcher);
   }
 
   public static Matcher1<HttpRequest> get() {
@@ -80,15 +79,17 @@ public final class Matchers {
   }
 
   public static <T> Matcher1<HttpRequest> equalTo(T value) {
-    return Extractors.<T>jsonTo(value.getClass()).andThen(value::equals)::apply;
+    return RequestMatcher.json("equalTo(" + value + ")",
+        Extractors.<T>jsonTo(value.getClass()).andThen(value::equals)::apply);
   }
 
   public static <T> Matcher1<HttpRequest> jsonPath(String jsonPath, Matcher1<T> matcher) {
-    return Extractors.<T>extract(jsonPath).andThen(matcher::match)::apply;
+    return RequestMatcher.json("jsonPath(" + jsonPath + ")",
+        Extractors.<T>extract(jsonPath).andThen(matcher::match)::apply);
   }
 
   public static Matcher1<HttpRequest> body(String body) {
-    return request -> asString(request.body()).equals(body);
+    return RequestMatcher.body(body);
   }
   
   public static Matcher1<HttpRequest> accept(String contentType) {
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.util.Objects.requireNonNull;
+
+final class PathBinding {
+
+  private static final PathBinding EMPTY = new PathBinding(new String[0], new int[0], new String[0]);
+
+  private final String[] names;
+  private final int[] positions;
+  private final String[] segments;
+
+  PathBinding(String[] names, int[] positions, String[] segments) {
+    this.names = requireNonNull(names);
+    this.positions = requireNonNull(positions);
+    this.segments = requireNonNull(segments);
+  }
+
+  String get(String name) {
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(name)) {
+        return segments[positions[i]];
+      }
+    }
+    return null;
+  }
+
+  static PathBinding empty() {
+    return EMPTY;
+  }
+}
@@ -22,6 +22,12 @@ public interface PreFilter extends Function1<HttpRequest, Either<HttpResponse, H
         Either.left(handler.apply(request)) : Either.right(request);
   }
   
+  // gzip and deflate bodies are inflated lazily, a body bigger than maxSize is answered with 413 payload too large,
+  // and one that is not valid with 400 bad request
+  static PreFilter decompress(int maxSize) {
+    return request -> Either.right(Compression.decode(request, maxSize));
+  }
+
   static PreFilter print(PrintStream output) {
     return print(new PrintWriter(new OutputStreamWriter(output, UTF_8), true));
   }
@@ -17,4 +17,8 @@ public interface PreFilterK<F extends Witness> extends Function1<HttpRequest, Ki
     return request -> matcher.match(request) ?
         monad.map(handler.apply(request), Either::left) : monad.pure(Either.right(request));
   }
+
+  static <F extends Witness> PreFilterK<F> decompress(Monad<F> monad, int maxSize) {
+    return request -> monad.pure(Either.right(Compression.decode(request, maxSize)));
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import com.github.tonivade.purefun.Equal;
+
+final class RequestBody {
+
+  private static final Equal<RequestBody> EQUAL = Equal.<RequestBody>of()
+      .comparing(RequestBody::get);
+
+  // bigger bodies are not trusted to allocate the whole buffer up front
+  private static final int MAX_PRESIZE = 16 * 1024 * 1024;
+
+  private final int length;
+
+  private volatile Bytes bytes;
+  private Supplier<InputStream> source;
+  // the first error reading the body, thrown again instead of complaining that the source was already taken
+  private RuntimeException failure;
+
+  RequestBody(Bytes bytes) {
+    this.bytes = requireNonNull(bytes);
+    this.length = bytes.size();
+  }
+
+  RequestBody(InputStream input, int length) {
+    this(supplier(requireNonNull(input)), length);
+  }
+
+  // the source is only opened when the body is used
+  RequestBody(Supplier<InputStream> source, int length) {
+    this.source = requireNonNull(source);
+    this.length = length;
+  }
+
+  Bytes get() {
+    Bytes current = bytes;
+    if (current != null) {
+      return current;
+    }
+    synchronized (this) {
+      if (bytes == null) {
+        bytes = load();
+      }
+      return bytes;
+    }
+  }
+
+  // null while a lazy body has not been read
+  Bytes peek() {
+    return bytes;
+  }
+
+  synchronized InputStream stream() {
+    if (bytes != null) {
+      return bytes.toInputStream();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return take();
+  }
+
+  synchronized void detach() {
+    if (source != null) {
+      get();
+    }
+  }
+
+  // equal bodies may be loaded or not yet, so the hash can not depend on the content without reading it,
+  // and hashing a request must not read its body
+  @Override
+  public int hashCode() {
+    return 0;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return EQUAL.applyTo(this, obj);
+  }
+
+  private Bytes load() {
+    if (failure != null) {
+      throw failure;
+    }
+    try {
+      return read(take(), length);
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    }
+  }
+
+  private InputStream take() {
+    Supplier<InputStream> current = source;
+    if (current == null) {
+      throw new IllegalStateException("request body already consumed as a stream");
+    }
+    source = null;
+    return current.get();
+  }
+
+  private static Supplier<InputStream> supplier(InputStream input) {
+    return () -> input;
+  }
+
+  private static Bytes read(InputStream input, int length) {
+    try {
+      if (length < 0 || length > MAX_PRESIZE) {
+        return Bytes.asBytes(input);
+      }
+      byte[] buffer = new byte[length];
+      int offset = 0;
+      while (offset < length) {
+        int read = input.read(buffer, offset, length - offset);
+        if (read < 0) {
+          break;
+        }
+        offset += read;
+      }
+      return Bytes.fromArray(offset == length ? buffer : Arrays.copyOf(buffer, offset));
+    } catch (IOException e) {
+      throw new UncheckedIOException("error reading request body", e);
+    }
+  }
+}
@@ -0,0 +1,663 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static com.github.tonivade.zeromock.api.Bytes.asString;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import com.github.tonivade.purefun.Matcher1;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.type.Option;
+
+public abstract class RequestMatcher implements Matcher1<HttpRequest> {
+
+  public enum Type {
+    ALL, METHOD, PATH, HEADER, PARAM, BODY, JSON, AND, OR, NOT, CUSTOM
+  }
+
+  private static final int CHEAP = 1;
+  private static final int LOOKUP = 3;
+  private static final int DECODE = 10;
+  private static final int UNKNOWN = 15;
+  private static final int PARSE = 20;
+
+  private final Type type;
+  private final int cost;
+
+  private RequestMatcher(Type type, int cost) {
+    this.type = requireNonNull(type);
+    this.cost = cost;
+  }
+
+  public Type type() {
+    return type;
+  }
+
+  public int cost() {
+    return cost;
+  }
+
+  public List<RequestMatcher> children() {
+    return emptyList();
+  }
+
+  @Override
+  public RequestMatcher and(Matcher1<HttpRequest> other) {
+    return new AllOf(concat(this, of(other), Type.AND));
+  }
+
+  @Override
+  public RequestMatcher or(Matcher1<HttpRequest> other) {
+    return new AnyOf(concat(this, of(other), Type.OR));
+  }
+
+  @Override
+  public RequestMatcher negate() {
+    return new Not(this);
+  }
+
+  public static RequestMatcher of(Matcher1<HttpRequest> matcher) {
+    if (matcher instanceof RequestMatcher) {
+      return (RequestMatcher) matcher;
+    }
+    return new Custom(matcher);
+  }
+
+  // safe matchers never fail and never run user code, so they can be evaluated in any order
+  boolean isSafe() {
+    return true;
+  }
+
+  boolean readsRouteOnly() {
+    switch (type) {
+      case ALL:
+      case METHOD:
+      case PATH:
+        return true;
+      case AND:
+      case OR:
+      case NOT:
+        return children().stream().allMatch(RequestMatcher::readsRouteOnly);
+      default:
+        return false;
+    }
+  }
+
+  Option<HttpMethod> method() {
+    return Option.none();
+  }
+
+  Option<PathMatcher> path() {
+    return Option.none();
+  }
+
+  List<RequestMatcher> alternatives() {
+    return singletonList(this);
+  }
+
+  // true when a matching request gets path params from this matcher
+  boolean binds() {
+    return false;
+  }
+
+  // only called with a request that matches
+  HttpRequest bind(HttpRequest request) {
+    return request;
+  }
+
+  static RequestMatcher all() {
+    return All.INSTANCE;
+  }
+
+  static RequestMatcher method(HttpMethod method) {
+    return new MethodMatcher(method);
+  }
+
+  static RequestMatcher path(HttpPath path) {
+    return new PathMatcher(path, false);
+  }
+
+  static RequestMatcher startsWith(HttpPath path) {
+    return new PathMatcher(path, true);
+  }
+
+  static RequestMatcher header(String key) {
+    return new HeaderMatcher(key, null);
+  }
+
+  static RequestMatcher header(String key, String value) {
+    return new HeaderMatcher(key, requireNonNull(value));
+  }
+
+  static RequestMatcher header(String key, Matcher1<ImmutableSet<String>> matcher) {
+    return new HeaderValuesMatcher(key, matcher);
+  }
+
+  static RequestMatcher param(String name) {
+    return new ParamMatcher(name, null);
+  }
+
+  static RequestMatcher param(String name, String value) {
+    return new ParamMatcher(name, requireNonNull(value));
+  }
+
+  static RequestMatcher body(String body) {
+    return new BodyMatcher(body);
+  }
+
+  static RequestMatcher json(String description, Matcher1<HttpRequest> matcher) {
+    return new JsonMatcher(description, matcher);
+  }
+
+  private static List<RequestMatcher> concat(RequestMatcher left, RequestMatcher right, Type type) {
+    List<RequestMatcher> matchers = new ArrayList<>();
+    matchers.addAll(left.type == type ? left.children() : singletonList(left));
+    matchers.addAll(right.type == type ? right.children() : singletonList(right));
+    return matchers;
+  }
+
+  private static final class All extends RequestMatcher {
+
+    private static final All INSTANCE = new All();
+
+    private All() {
+      super(Type.ALL, 0);
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return "all";
+    }
+  }
+
+  private static final class MethodMatcher extends RequestMatcher {
+
+    private final HttpMethod method;
+
+    private MethodMatcher(HttpMethod method) {
+      super(Type.METHOD, CHEAP);
+      this.method = requireNonNull(method);
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      return request.method() == method;
+    }
+
+    @Override
+    Option<HttpMethod> method() {
+      return Option.some(method);
+    }
+
+    @Override
+    public int hashCode() {
+      return method.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof MethodMatcher && ((MethodMatcher) obj).method == method;
+    }
+
+    @Override
+    public String toString() {
+      return method.name();
+    }
+  }
+
+  static final class PathMatcher extends RequestMatcher {
+
+    private static final String PARAM_PREFIX = ":";
+
+    private final HttpPath path;
+    private final boolean prefix;
+    private final String[] names;
+    private final int[] positions;
+
+    private PathMatcher(HttpPath path, boolean prefix) {
+      super(Type.PATH, CHEAP + 1);
+      this.path = requireNonNull(path);
+      this.prefix = prefix;
+      String[] segments = path.segments();
+      List<String> params = new ArrayList<>();
+      int[] indexes = new int[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        if (segments[i].startsWith(PARAM_PREFIX)) {
+          indexes[params.size()] = i;
+          params.add(segments[i].substring(PARAM_PREFIX.length()));
+        }
+      }
+      this.names = params.toArray(new String[0]);
+      this.positions = Arrays.copyOf(indexes, names.length);
+    }
+
+    String[] segments() {
+      return path.segments();
+    }
+
+    @Override
+    boolean binds() {
+      return names.length > 0;
+    }
+
+    @Override
+    HttpRequest bind(HttpRequest request) {
+      if (names.length == 0) {
+        return request;
+      }
+      return request.withPathParams(new PathBinding(names, positions, request.path().segments()));
+    }
+
+    boolean isPrefix() {
+      return prefix;
+    }
+
+    boolean isLiteral() {
+      return !prefix && names.length == 0;
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      return prefix ? request.path().startsWith(path) : request.path().match(path);
+    }
+
+    @Override
+    Option<PathMatcher> path() {
+      return Option.some(this);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, prefix);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof PathMatcher) {
+        PathMatcher other = (PathMatcher) obj;
+        return other.prefix == prefix && other.path.equals(path);
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return (prefix ? "startsWith(" : "path(") + path.toPath() + ")";
+    }
+  }
+
+  private static final class HeaderMatcher extends RequestMatcher {
+
+    private final String key;
+    private final String value;
+
+    private HeaderMatcher(String key, String value) {
+      super(Type.HEADER, LOOKUP);
+      this.key = requireNonNull(key);
+      this.value = value;
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      HttpHeaders headers = request.headers();
+      return headers.contains(key) && (value == null || headers.get(key).contains(value));
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(key, value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof HeaderMatcher) {
+        HeaderMatcher other = (HeaderMatcher) obj;
+        return other.key.equals(key) && Objects.equals(other.value, value);
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return "header(" + key + (value == null ? "" : "=" + value) + ")";
+    }
+  }
+
+  private static final class HeaderValuesMatcher extends RequestMatcher {
+
+    private final String key;
+    private final Matcher1<ImmutableSet<String>> matcher;
+
+    private HeaderValuesMatcher(String key, Matcher1<ImmutableSet<String>> matcher) {
+      super(Type.HEADER, LOOKUP);
+      this.key = requireNonNull(key);
+      this.matcher = requireNonNull(matcher);
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      return request.headers().contains(key) && matcher.match(request.headers().get(key));
+    }
+
+    @Override
+    boolean isSafe() {
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return "header(" + key + "=?)";
+    }
+  }
+
+  private static final class ParamMatcher extends RequestMatcher {
+
+    private final String name;
+    private final String value;
+
+    private ParamMatcher(String name, String value) {
+      super(Type.PARAM, LOOKUP);
+      this.name = requireNonNull(name);
+      this.value = value;
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      if (value == null) {
+        return request.params().contains(name);
+      }
+      return request.params().get(name).map(value::equals).getOrElse(false);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof ParamMatcher) {
+        ParamMatcher other = (ParamMatcher) obj;
+        return other.name.equals(name) && Objects.equals(other.value, value);
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return "param(" + name + (value == null ? "" : "=" + value) + ")";
+    }
+  }
+
+  private static final class BodyMatcher extends RequestMatcher {
+
+    private final String body;
+
+    private BodyMatcher(String body) {
+      super(Type.BODY, DECODE);
+      this.body = requireNonNull(body);
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      return asString(request.body()).equals(body);
+    }
+
+    // reading the body may fail, after it was consumed as a stream or over the decompression limit
+    @Override
+    boolean isSafe() {
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return body.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof BodyMatcher && ((BodyMatcher) obj).body.equals(body);
+    }
+
+    @Override
+    public String toString() {
+      return "body(" + body + ")";
+    }
+  }
+
+  private static final class JsonMatcher extends RequestMatcher {
+
+    private final String description;
+    private final Matcher1<HttpRequest> matcher;
+
+    private JsonMatcher(String description, Matcher1<HttpRequest> matcher) {
+      super(Type.JSON, PARSE);
+      this.description = requireNonNull(description);
+      this.matcher = requireNonNull(matcher);
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      return matcher.match(request);
+    }
+
+    @Override
+    boolean isSafe() {
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  private static final class Custom extends RequestMatcher {
+
+    private final Matcher1<HttpRequest> matcher;
+
+    private Custom(Matcher1<HttpRequest> matcher) {
+      super(Type.CUSTOM, UNKNOWN);
+      this.matcher = requireNonNull(matcher);
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      return matcher.match(request);
+    }
+
+    @Override
+    boolean isSafe() {
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return "custom";
+    }
+  }
+
+  private static final class AllOf extends RequestMatcher {
+
+    private final RequestMatcher[] matchers;
+
+    private AllOf(List<RequestMatcher> matchers) {
+      super(Type.AND, matchers.stream().mapToInt(RequestMatcher::cost).sum());
+      this.matchers = matchers.toArray(new RequestMatcher[0]);
+    }
+
+    @Override
+    public List<RequestMatcher> children() {
+      return unmodifiableList(Arrays.asList(matchers));
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      for (RequestMatcher matcher : matchers) {
+        if (!matcher.match(request)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    boolean isSafe() {
+      return Arrays.stream(matchers).allMatch(RequestMatcher::isSafe);
+    }
+
+    @Override
+    Option<HttpMethod> method() {
+      for (RequestMatcher matcher : matchers) {
+        Option<HttpMethod> method = matcher.method();
+        if (method.isPresent()) {
+          return method;
+        }
+      }
+      return Option.none();
+    }
+
+    @Override
+    Option<PathMatcher> path() {
+      for (RequestMatcher matcher : matchers) {
+        Option<PathMatcher> path = matcher.path();
+        if (path.isPresent()) {
+          return path;
+        }
+      }
+      return Option.none();
+    }
+
+    @Override
+    boolean binds() {
+      return Arrays.stream(matchers).anyMatch(RequestMatcher::binds);
+    }
+
+    // all of them matched, the params come from the first one that has any, not just the first path
+    @Override
+    HttpRequest bind(HttpRequest request) {
+      for (RequestMatcher matcher : matchers) {
+        if (matcher.binds()) {
+          return matcher.bind(request);
+        }
+      }
+      return request;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.stream(matchers).map(Object::toString).collect(joining(" and ", "(", ")"));
+    }
+  }
+
+  private static final class AnyOf extends RequestMatcher {
+
+    private final RequestMatcher[] matchers;
+
+    private AnyOf(List<RequestMatcher> matchers) {
+      super(Type.OR, matchers.stream().mapToInt(RequestMatcher::cost).sum());
+      this.matchers = matchers.toArray(new RequestMatcher[0]);
+    }
+
+    @Override
+    public List<RequestMatcher> children() {
+      return unmodifiableList(Arrays.asList(matchers));
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      for (RequestMatcher matcher : matchers) {
+        if (matcher.match(request)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    boolean isSafe() {
+      return Arrays.stream(matchers).allMatch(RequestMatcher::isSafe);
+    }
+
+    @Override
+    List<RequestMatcher> alternatives() {
+      List<RequestMatcher> alternatives = new ArrayList<>();
+      for (RequestMatcher matcher : matchers) {
+        alternatives.addAll(matcher.alternatives());
+      }
+      return alternatives;
+    }
+
+    @Override
+    boolean binds() {
+      return Arrays.stream(matchers).anyMatch(RequestMatcher::binds);
+    }
+
+    // the params come from the first alternative with params that matches, only those are evaluated again
+    @Override
+    HttpRequest bind(HttpRequest request) {
+      for (RequestMatcher matcher : matchers) {
+        if (matcher.binds() && matcher.match(request)) {
+          return matcher.bind(request);
+        }
+      }
+      return request;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.stream(matchers).map(Object::toString).collect(joining(" or ", "(", ")"));
+    }
+  }
+
+  private static final class Not extends RequestMatcher {
+
+    private final RequestMatcher matcher;
+
+    private Not(RequestMatcher matcher) {
+      super(Type.NOT, matcher.cost());
+      this.matcher = requireNonNull(matcher);
+    }
+
+    @Override
+    public List<RequestMatcher> children() {
+      return singletonList(matcher);
+    }
+
+    @Override
+    public boolean match(HttpRequest request) {
+      return !matcher.match(request);
+    }
+
+    @Override
+    public RequestMatcher negate() {
+      return matcher;
+    }
+
+    @Override
+    boolean isSafe() {
+      return matcher.isSafe();
+    }
+
+    @Override
+    public String toString() {
+      return "not(" + matcher + ")";
+    }
+  }
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+// a response body that is written as it is read, opened again for every request
+@FunctionalInterface
+public interface ResponseStream {
+
+  ReadableByteChannel open() throws IOException;
+
+  // -1 when unknown, the body is sent chunked
+  default long length() {
+    return -1;
+  }
+}
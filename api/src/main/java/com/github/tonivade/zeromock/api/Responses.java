@@ -18,6 +18,8 @@ import static com.github.tonivade.zeromock.api.HttpStatus.UNAUTHORIZED;
 import static com.github.tonivade.zeromock.api.Serializers.throwableToJson;
 import static java.util.Objects.requireNonNull;
 
+import java.nio.file.Path;
+
 public final class Responses {
   
   private Responses() {}
@@ -33,6 +35,14 @@ public final class Responses {
   public static HttpResponse ok(Bytes body) {
     return new HttpResponse(OK, body);
   }
+
+  public static HttpResponse ok(ResponseStream body) {
+    return new HttpResponse(OK, body, HttpHeaders.empty());
+  }
+
+  public static HttpResponse ok(Path file) {
+    return ok(FileStream.of(file));
+  }
   
   public static HttpResponse created(String body) {
     return created(asBytes(body));
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.util.Objects.requireNonNull;
+
+final class RouteMatch<T> {
+
+  private final HttpRequest request;
+  private final T value;
+
+  RouteMatch(HttpRequest request, T value) {
+    this.request = requireNonNull(request);
+    this.value = requireNonNull(value);
+  }
+
+  HttpRequest request() {
+    return request;
+  }
+
+  T value() {
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return "RouteMatch(" + request + ")";
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.tonivade.purefun.Matcher1;
+
+final class RoutePlanner {
+
+  private static final byte UNKNOWN = 0;
+  private static final byte MATCH = 1;
+  private static final byte NO_MATCH = 2;
+
+  private static final byte[] NO_MEMO = new byte[0];
+
+  private static final int SHARED_COST = 3;
+
+  private final Map<RequestMatcher, Integer> shared = new HashMap<>();
+
+  RoutePlanner(List<? extends Matcher1<HttpRequest>> matchers) {
+    Map<RequestMatcher, Integer> counters = new HashMap<>();
+    for (Matcher1<HttpRequest> matcher : matchers) {
+      count(RequestMatcher.of(matcher), counters);
+    }
+    counters.forEach((leaf, counter) -> {
+      if (counter > 1) {
+        shared.put(leaf, shared.size());
+      }
+    });
+  }
+
+  byte[] memo() {
+    return shared.isEmpty() ? NO_MEMO : new byte[shared.size()];
+  }
+
+  Plan plan(Matcher1<HttpRequest> matcher) {
+    return compile(RequestMatcher.of(matcher));
+  }
+
+  private Plan compile(RequestMatcher matcher) {
+    switch (matcher.type()) {
+      case AND:
+        return new AllOf(matcher, order(matcher.children()));
+      case OR:
+        return new AnyOf(matcher, order(matcher.children()));
+      case NOT:
+        return new Not(matcher, compile(matcher.children().get(0)));
+      default:
+        Integer slot = shared.get(matcher);
+        return slot != null ? new Shared(matcher, slot) : new Leaf(matcher);
+    }
+  }
+
+  // safe matchers are moved ahead cheapest first, the rest keep their declared order
+  // so a custom matcher never runs before the guards written in front of it
+  private Plan[] order(List<RequestMatcher> children) {
+    List<Plan> safe = new ArrayList<>();
+    List<Plan> unsafe = new ArrayList<>();
+    for (RequestMatcher child : children) {
+      Plan plan = compile(child);
+      if (plan.safe) {
+        safe.add(plan);
+      } else {
+        unsafe.add(plan);
+      }
+    }
+    safe.sort(Plan.COST);
+    safe.addAll(unsafe);
+    return safe.toArray(new Plan[0]);
+  }
+
+  private static void count(RequestMatcher matcher, Map<RequestMatcher, Integer> counters) {
+    List<RequestMatcher> children = matcher.children();
+    if (children.isEmpty()) {
+      if (matcher.isSafe() && matcher.cost() >= SHARED_COST) {
+        counters.merge(matcher, 1, Integer::sum);
+      }
+    } else {
+      children.forEach(child -> count(child, counters));
+    }
+  }
+
+  abstract static class Plan {
+
+    private static final Comparator<Plan> COST = Comparator.comparingInt(plan -> plan.cost);
+
+    private final int cost;
+    private final boolean safe;
+
+    private Plan(RequestMatcher matcher) {
+      this.cost = matcher.cost();
+      this.safe = matcher.isSafe();
+    }
+
+    abstract boolean test(HttpRequest request, byte[] memo);
+  }
+
+  private static final class Leaf extends Plan {
+
+    private final RequestMatcher matcher;
+
+    private Leaf(RequestMatcher matcher) {
+      super(matcher);
+      this.matcher = requireNonNull(matcher);
+    }
+
+    @Override
+    boolean test(HttpRequest request, byte[] memo) {
+      return matcher.match(request);
+    }
+  }
+
+  private static final class Shared extends Plan {
+
+    private final RequestMatcher matcher;
+    private final int slot;
+
+    private Shared(RequestMatcher matcher, int slot) {
+      super(matcher);
+      this.matcher = requireNonNull(matcher);
+      this.slot = slot;
+    }
+
+    @Override
+    boolean test(HttpRequest request, byte[] memo) {
+      if (memo[slot] == UNKNOWN) {
+        memo[slot] = matcher.match(request) ? MATCH : NO_MATCH;
+      }
+      return memo[slot] == MATCH;
+    }
+  }
+
+  private static final class AllOf extends Plan {
+
+    private final Plan[] plans;
+
+    private AllOf(RequestMatcher matcher, Plan[] plans) {
+      super(matcher);
+      this.plans = requireNonNull(plans);
+    }
+
+    @Override
+    boolean test(HttpRequest request, byte[] memo) {
+      for (Plan plan : plans) {
+        if (!plan.test(request, memo)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class AnyOf extends Plan {
+
+    private final Plan[] plans;
+
+    private AnyOf(RequestMatcher matcher, Plan[] plans) {
+      super(matcher);
+      this.plans = requireNonNull(plans);
+    }
+
+    @Override
+    boolean test(HttpRequest request, byte[] memo) {
+      for (Plan plan : plans) {
+        if (plan.test(request, memo)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class Not extends Plan {
+
+    private final Plan plan;
+
+    private Not(RequestMatcher matcher, Plan plan) {
+      super(matcher);
+      this.plan = requireNonNull(plan);
+    }
+
+    @Override
+    boolean test(HttpRequest request, byte[] memo) {
+      return !plan.test(request, memo);
+    }
+  }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.api;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.github.tonivade.purefun.Function1;
+import com.github.tonivade.purefun.Matcher1;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.zeromock.api.RequestMatcher.PathMatcher;
+
+final class RouteTable<T> {
+
+  private static final String PARAM_PREFIX = ":";
+  private static final String ROOT = "/";
+
+  private static final RouteTable<?> EMPTY = new RouteTable<>(null, 0);
+
+  private final Route<T> last;
+  private final int cacheSize;
+
+  private volatile Index<T> index;
+
+  private RouteTable(Route<T> last, int cacheSize) {
+    this.last = last;
+    this.cacheSize = cacheSize;
+  }
+
+  int size() {
+    return isNull(last) ? 0 : last.order + 1;
+  }
+
+  RouteTable<T> add(Matcher1<HttpRequest> matcher, T value) {
+    requireNonNull(value);
+    RequestMatcher pattern = RequestMatcher.of(matcher);
+    boolean cacheable = pattern.readsRouteOnly();
+    if (pattern.binds()) {
+      return add(matcher, request -> Option.some(new RouteMatch<>(pattern.bind(request), value)), cacheable);
+    }
+    return add(matcher, request -> Option.some(new RouteMatch<>(request, value)), cacheable);
+  }
+
+  // the result of a mounted service depends on its own routes, so it is never cached
+  RouteTable<T> mount(HttpPath path, Function1<HttpRequest, Option<RouteMatch<T>>> resolver) {
+    requireNonNull(resolver);
+    return add(RequestMatcher.startsWith(path), request -> resolver.apply(request.dropOneLevel()), false);
+  }
+
+  RouteTable<T> append(RouteTable<T> other) {
+    RouteTable<T> result = this;
+    for (Route<T> route : other.toList()) {
+      result = result.add(route.matcher, route.resolver, route.cacheable);
+    }
+    return result;
+  }
+
+  RouteTable<T> withCache(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("invalid cache size: " + size);
+    }
+    return new RouteTable<>(last, size);
+  }
+
+  RouteTable<T> prepare() {
+    index();
+    return this;
+  }
+
+  Option<RouteMatch<T>> lookup(HttpRequest request) {
+    return index().lookup(request);
+  }
+
+  private RouteTable<T> add(Matcher1<HttpRequest> matcher,
+                            Function1<HttpRequest, Option<RouteMatch<T>>> resolver, boolean cacheable) {
+    return new RouteTable<>(new Route<>(size(), matcher, resolver, cacheable, last), cacheSize);
+  }
+
+  // built once, by the first thread that needs it
+  private Index<T> index() {
+    Index<T> current = index;
+    if (isNull(current)) {
+      synchronized (this) {
+        current = index;
+        if (isNull(current)) {
+          current = new Index<>(toList(), cacheSize);
+          index = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Route<T>> toList() {
+    Route<T>[] routes = new Route[size()];
+    for (Route<T> route = last; nonNull(route); route = route.previous) {
+      routes[route.order] = route;
+    }
+    return Arrays.asList(routes);
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> RouteTable<T> empty() {
+    return (RouteTable<T>) EMPTY;
+  }
+
+  private static final class Route<T> {
+
+    private static final Comparator<Route<?>> ORDER = Comparator.comparingInt(route -> route.order);
+
+    private final int order;
+    private final Matcher1<HttpRequest> matcher;
+    private final Function1<HttpRequest, Option<RouteMatch<T>>> resolver;
+    private final boolean cacheable;
+    private final Route<T> previous;
+
+    private Route(int order, Matcher1<HttpRequest> matcher,
+                  Function1<HttpRequest, Option<RouteMatch<T>>> resolver, boolean cacheable, Route<T> previous) {
+      this.order = order;
+      this.matcher = requireNonNull(matcher);
+      this.resolver = requireNonNull(resolver);
+      this.cacheable = cacheable;
+      this.previous = previous;
+    }
+  }
+
+  private static final class Index<T> {
+
+    private static final int NO_ROUTE = -1;
+
+    private final Map<HttpMethod, Node<T>> methods = new EnumMap<>(HttpMethod.class);
+    private final Node<T> anyMethod = new Node<>();
+    private final List<Route<T>> fallback = new ArrayList<>();
+    private final Map<HttpMethod, Map<String, List<Route<T>>>> exactByMethod = new EnumMap<>(HttpMethod.class);
+    private final Map<String, List<Route<T>>> exactAnyMethod = new HashMap<>();
+    private final List<Route<T>> routes;
+    private final RoutePlanner planner;
+    private final RoutePlanner.Plan[] plans;
+    private final Map<String, Integer> cache;
+
+    private Index(List<Route<T>> routes, int cacheSize) {
+      this.routes = routes;
+      this.planner = new RoutePlanner(routes.stream().map(route -> route.matcher).collect(Collectors.toList()));
+      this.plans = new RoutePlanner.Plan[routes.size()];
+      this.cache = cacheSize > 0 ? new RouteCache(cacheSize) : null;
+      for (Route<T> route : routes) {
+        plans[route.order] = planner.plan(route.matcher);
+        add(route);
+      }
+    }
+
+    private Option<RouteMatch<T>> lookup(HttpRequest request) {
+      String[] segments = request.path().segments();
+      String path = String.join(ROOT, segments);
+      if (isNull(cache)) {
+        return new Search(request, segments, path).run().map(Ranked::match);
+      }
+      String key = request.method().name() + ' ' + path;
+      Integer cached;
+      synchronized (cache) {
+        cached = cache.get(key);
+      }
+      if (nonNull(cached)) {
+        return cached == NO_ROUTE ? Option.none() : routes.get(cached).resolver.apply(request);
+      }
+      Search search = new Search(request, segments, path);
+      Option<Ranked<T>> result = search.run();
+      // only when every route evaluated reads nothing but the method and the path
+      if (search.cacheable) {
+        synchronized (cache) {
+          cache.put(key, result.map(Ranked::order).getOrElse(NO_ROUTE));
+        }
+      }
+      return result.map(Ranked::match);
+    }
+
+    private List<Route<T>> exact(HttpMethod method, String path) {
+      Map<String, List<Route<T>>> byMethod = exactByMethod.get(method);
+      List<Route<T>> byPath = nonNull(byMethod) ? byMethod.getOrDefault(path, emptyList()) : emptyList();
+      List<Route<T>> any = exactAnyMethod.getOrDefault(path, emptyList());
+      if (any.isEmpty()) {
+        return byPath;
+      }
+      if (byPath.isEmpty()) {
+        return any;
+      }
+      List<Route<T>> merged = new ArrayList<>(byPath);
+      merged.addAll(any);
+      merged.sort(Route.ORDER);
+      return merged;
+    }
+
+    private void add(Route<T> route) {
+      List<RequestMatcher> alternatives = RequestMatcher.of(route.matcher).alternatives();
+      for (RequestMatcher alternative : alternatives) {
+        if (!alternative.method().isPresent() && !alternative.path().isPresent()) {
+          fallback.add(route);
+          return;
+        }
+      }
+      for (RequestMatcher alternative : alternatives) {
+        add(alternative.method(), alternative.path(), route);
+      }
+    }
+
+    private void add(Option<HttpMethod> method, Option<PathMatcher> path, Route<T> route) {
+      if (path.isPresent() && path.get().isLiteral()) {
+        Map<String, List<Route<T>>> exact = method.isPresent()
+            ? exactByMethod.computeIfAbsent(method.get(), m -> new HashMap<>()) : exactAnyMethod;
+        addExact(exact, String.join(ROOT, path.get().segments()), route);
+        return;
+      }
+      Node<T> root = method.isPresent() ? methods.computeIfAbsent(method.get(), m -> new Node<>()) : anyMethod;
+      if (path.isPresent()) {
+        insert(root, path.get(), route);
+      } else {
+        root.prefix.add(route);
+      }
+    }
+
+    private void addExact(Map<String, List<Route<T>>> exact, String path, Route<T> route) {
+      List<Route<T>> bucket = exact.get(path);
+      if (isNull(bucket)) {
+        exact.put(path, singletonList(route));
+      } else {
+        if (bucket.size() == 1) {
+          bucket = new ArrayList<>(bucket);
+          exact.put(path, bucket);
+        }
+        if (bucket.get(bucket.size() - 1) != route) {
+          bucket.add(route);
+        }
+      }
+    }
+
+    private final class Search {
+
+      private final HttpRequest request;
+      private final String[] segments;
+      private final String path;
+      private final byte[] memo;
+      private boolean cacheable = true;
+
+      private Search(HttpRequest request, String[] segments, String path) {
+        this.request = request;
+        this.segments = segments;
+        this.path = path;
+        this.memo = planner.memo();
+      }
+
+      // the exact tier and the other candidates are walked together in registration order,
+      // so a route is only evaluated if no route registered before it matched
+      private Option<Ranked<T>> run() {
+        List<Route<T>> exact = exact(request.method(), path);
+        List<Route<T>> candidates = new ArrayList<>();
+        Node<T> byMethod = methods.get(request.method());
+        if (nonNull(byMethod)) {
+          byMethod.collect(segments, 0, candidates);
+        }
+        anyMethod.collect(segments, 0, candidates);
+        candidates.addAll(fallback);
+        candidates.sort(Route.ORDER);
+        int i = 0;
+        int j = 0;
+        Route<T> previous = null;
+        while (i < candidates.size() || j < exact.size()) {
+          Route<T> route;
+          if (j == exact.size() || (i < candidates.size() && candidates.get(i).order < exact.get(j).order)) {
+            route = candidates.get(i++);
+          } else {
+            route = exact.get(j++);
+          }
+          if (route != previous) {
+            Option<RouteMatch<T>> match = resolve(route);
+            if (match.isPresent()) {
+              return Option.some(new Ranked<>(route.order, match.get()));
+            }
+          }
+          previous = route;
+        }
+        return Option.none();
+      }
+
+      private Option<RouteMatch<T>> resolve(Route<T> route) {
+        cacheable &= route.cacheable;
+        return plans[route.order].test(request, memo) ? route.resolver.apply(request) : Option.none();
+      }
+    }
+
+    private void insert(Node<T> root, PathMatcher path, Route<T> route) {
+      Node<T> node = root;
+      for (String segment : path.segments()) {
+        node = node.child(segment);
+      }
+      if (path.isPrefix()) {
+        node.prefix.add(route);
+      } else {
+        node.exact.add(route);
+      }
+    }
+  }
+
+  private static final class RouteCache extends LinkedHashMap<String, Integer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+
+    private RouteCache(int maxSize) {
+      super(maxSize, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+      return size() > maxSize;
+    }
+  }
+
+  private static final class Ranked<T> {
+
+    private final int order;
+    private final RouteMatch<T> match;
+
+    private Ranked(int order, RouteMatch<T> match) {
+      this.order = order;
+      this.match = requireNonNull(match);
+    }
+
+    private int order() {
+      return order;
+    }
+
+    private RouteMatch<T> match() {
+      return match;
+    }
+  }
+
+  private static final class Node<T> {
+
+    private final Map<String, Node<T>> literals = new HashMap<>();
+    private final List<Route<T>> exact = new ArrayList<>();
+    private final List<Route<T>> prefix = new ArrayList<>();
+    private Node<T> param;
+
+    private Node<T> child(String segment) {
+      if (segment.startsWith(PARAM_PREFIX)) {
+        if (isNull(param)) {
+          param = new Node<>();
+        }
+        return param;
+      }
+      return literals.computeIfAbsent(segment, s -> new Node<>());
+    }
+
+    private void collect(String[] segments, int depth, List<Route<T>> candidates) {
+      candidates.addAll(prefix);
+      if (depth == segments.length) {
+        candidates.addAll(exact);
+        return;
+      }
+      Node<T> literal = literals.get(segments[depth]);
+      if (nonNull(literal)) {
+        literal.collect(segments, depth + 1, candidates);
+      }
+      if (nonNull(param)) {
+        param.collect(segments, depth + 1, candidates);
+      }
+    }
+  }
+}
@@ -16,6 +16,8 @@ import static com.github.tonivade.zeromock.api.Matchers.get;
 import static com.github.tonivade.zeromock.api.Matchers.put;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class AsyncHttpServiceTest {
 
@@ -25,7 +27,9 @@ public class AsyncHttpServiceTest {
     
     assertAll(
         () -> assertEquals("service", service.name()),
-        () -> assertEquals(none(), service.execute(Requests.get("/ping")).get().get())
+        () -> assertEquals(none(), service.execute(Requests.get("/ping")).get().get()),
+        () -> assertFalse(service.build().isSync()),
+        () -> assertThrows(UnsupportedOperationException.class, () -> service.build().executeSync(Requests.get("/ping")))
     );
   }
 
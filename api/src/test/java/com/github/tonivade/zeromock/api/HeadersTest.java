@@ -10,7 +10,15 @@ import static com.github.tonivade.zeromock.api.Headers.contentPlain;
 import static com.github.tonivade.zeromock.api.Headers.contentXml;
 import static com.github.tonivade.zeromock.api.Responses.ok;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static com.github.tonivade.zeromock.api.Bytes.asBytes;
+import static com.github.tonivade.zeromock.api.Bytes.asString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -24,4 +32,25 @@ public class HeadersTest {
         () -> assertEquals(setOf("text/plain"), contentPlain().apply(ok()).headers().get("Content-type"))
         );
   }
+
+  @Test
+  public void compress() throws IOException {
+    String json = String.join("", Collections.nCopies(200, "{\"key\":\"value\"}"));
+    RequestHandler handler = Headers.compress(Handlers.ok(json));
+
+    HttpResponse gzip = handler.apply(Requests.get("/").withHeader("Accept-Encoding", "deflate;q=0.5, gzip"));
+    HttpResponse deflate = handler.apply(Requests.get("/").withHeader("Accept-Encoding", "gzip;q=0, deflate"));
+    HttpResponse identity = handler.apply(Requests.get("/"));
+    HttpResponse small = Headers.compress(Handlers.ok("small")).apply(Requests.get("/").withHeader("Accept-Encoding", "gzip"));
+
+    assertAll(
+        () -> assertEquals(setOf("gzip"), gzip.headers().get("Content-Encoding")),
+        () -> assertEquals(json, asString(asBytes(new GZIPInputStream(gzip.body().toInputStream())))),
+        () -> assertSame(gzip.body(), handler.apply(Requests.get("/").withHeader("Accept-Encoding", "gzip")).body()),
+        () -> assertEquals(setOf("deflate"), deflate.headers().get("Content-Encoding")),
+        () -> assertEquals(json, asString(asBytes(new InflaterInputStream(deflate.body().toInputStream())))),
+        () -> assertEquals(Responses.ok(json), identity),
+        () -> assertEquals(Responses.ok("small"), small)
+        );
+  }
 }
@@ -40,6 +40,17 @@ public class HttpPathTest {
               () -> assertEquals(false, httpPath.startsWith(HttpPath.from("/other"))));
   }
   
+  @Test
+  public void matchBySegments() {
+    assertAll(() -> assertEquals(true, HttpPath.from("/a.b").match(HttpPath.from("/a.b"))),
+              () -> assertEquals(false, HttpPath.from("/axb").match(HttpPath.from("/a.b"))),
+              () -> assertEquals(false, HttpPath.from("/path/a-b").match(HttpPath.from("/path/:id"))),
+              () -> assertEquals(false, HttpPath.from("/path/1/2").match(HttpPath.from("/path/:id"))),
+              () -> assertEquals(true, HttpPath.from("/path/1/2").startsWith(HttpPath.from("/path/:id"))),
+              () -> assertEquals(false, HttpPath.from("/pathology").startsWith(HttpPath.from("/path"))),
+              () -> assertEquals(true, HttpPath.from("/path").startsWith(HttpPath.from("/"))));
+  }
+
   @Test
   public void root() {
     HttpPath httpPath = HttpPath.from("/");
@@ -75,6 +86,6 @@ public class HttpPathTest {
   
   @Test
   public void equalsVerifier() {
-    EqualsVerifier.forClass(HttpPath.class).verify();
+    EqualsVerifier.forClass(HttpPath.class).withIgnoredFields("elements", "segments").verify();
   }
 }
@@ -4,11 +4,23 @@
  */
 package com.github.tonivade.zeromock.api;
 
+import static com.github.tonivade.zeromock.api.Bytes.asBytes;
+import static com.github.tonivade.zeromock.api.Bytes.asString;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 
 import org.junit.jupiter.api.Test;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
 
 public class HttpRequestTest {
   
@@ -19,8 +31,47 @@ public class HttpRequestTest {
     assertEquals(Requests.get("/level2/level3"), request);
   }
   
+  @Test
+  public void lazyBody() {
+    HttpRequest request = new HttpRequest(HttpMethod.POST, HttpPath.from("/echo"),
+        new ByteArrayInputStream("hello".getBytes(UTF_8)), 5, HttpHeaders.empty(), HttpParams.empty());
+
+    assertAll(() -> assertEquals("hello", asString(request.body())),
+              () -> assertEquals(Requests.post("/echo").withBody("hello"), request));
+  }
+
+  @Test
+  public void streamedBody() throws IOException {
+    HttpRequest request = new HttpRequest(HttpMethod.POST, HttpPath.from("/echo"),
+        new ByteArrayInputStream("hello".getBytes(UTF_8)), -1, HttpHeaders.empty(), HttpParams.empty());
+
+    assertEquals("hello", asString(asBytes(request.bodyStream())));
+    assertThrows(IllegalStateException.class, request::body);
+  }
+
+  @Test
+  public void failedBody() {
+    InputStream failing = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("connection reset");
+      }
+    };
+    HttpRequest request = new HttpRequest(HttpMethod.POST, HttpPath.from("/echo"),
+        failing, 5, HttpHeaders.empty(), HttpParams.empty());
+
+    request.hashCode();
+    UncheckedIOException first = assertThrows(UncheckedIOException.class, request::body);
+    UncheckedIOException second = assertThrows(UncheckedIOException.class, request::body);
+
+    assertAll(() -> assertEquals("connection reset", first.getCause().getMessage()),
+              () -> assertSame(first, second),
+              () -> assertThrows(UncheckedIOException.class, request::bodyStream));
+  }
+
+  // the body is not part of the hash code, so hashing a request never reads it
   @Test
   public void equalsVerifier() {
-    EqualsVerifier.forClass(HttpRequest.class).verify();
+    EqualsVerifier.forClass(HttpRequest.class).withIgnoredFields("pathParams").suppress(Warning.STRICT_HASHCODE).verify();
   }
 }
@@ -4,14 +4,37 @@
  */
 package com.github.tonivade.zeromock.api;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.ByteBuffer;
+
 import org.junit.jupiter.api.Test;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 
 public class HttpResponseTest {
-  
+
+  @Test
+  public void freeze() {
+    HttpResponse response = Responses.ok("pong").withHeader("Content-type", "text/plain");
+    FrozenResponse frozen = response.freeze().frozen().get();
+
+    assertAll(() -> assertEquals(response, response.freeze()),
+              () -> assertFalse(response.frozen().isPresent()),
+              () -> assertEquals("HTTP/1.1 200 OK\r\nContent-type: text/plain\r\nContent-Length: 4\r\n", decode(frozen.head())),
+              () -> assertEquals("\r\npong", decode(frozen.tail())),
+              () -> assertFalse(response.freeze().withHeader("X-Other", "value").frozen().isPresent()));
+  }
+
   @Test
   public void equalsVerifier() {
-    EqualsVerifier.forClass(HttpResponse.class).verify();
+    EqualsVerifier.forClass(HttpResponse.class).withIgnoredFields("frozen").verify();
+  }
+
+  private static String decode(ByteBuffer buffer) {
+    return ISO_8859_1.decode(buffer).toString();
   }
 }
@@ -4,17 +4,34 @@
  */
 package com.github.tonivade.zeromock.api;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.tonivade.purefun.type.Either;
+
 import org.junit.jupiter.api.Test;
 
 import static com.github.tonivade.purefun.type.Option.none;
 import static com.github.tonivade.purefun.type.Option.some;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static com.github.tonivade.zeromock.api.Handlers.forbidden;
 import static com.github.tonivade.zeromock.api.Handlers.ok;
 import static com.github.tonivade.zeromock.api.Headers.contentPlain;
+import static com.github.tonivade.zeromock.api.Matchers.acceptsJson;
+import static com.github.tonivade.zeromock.api.Matchers.body;
 import static com.github.tonivade.zeromock.api.Matchers.get;
+import static com.github.tonivade.zeromock.api.Matchers.header;
+import static com.github.tonivade.zeromock.api.Matchers.param;
+import static com.github.tonivade.zeromock.api.Matchers.post;
 import static com.github.tonivade.zeromock.api.Matchers.put;
+import static com.github.tonivade.zeromock.api.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HttpServiceTest {
 
@@ -24,7 +41,8 @@ public class HttpServiceTest {
     
     assertAll(
         () -> assertEquals("service", service.name()),
-        () -> assertEquals(none(), service.execute(Requests.get("/ping")))
+        () -> assertEquals(none(), service.execute(Requests.get("/ping"))),
+        () -> assertTrue(service.build().isSync())
     );
   }
 
@@ -58,6 +76,33 @@ public class HttpServiceTest {
     );
   }
 
+  @Test
+  public void matchOnce() {
+    AtomicInteger counter = new AtomicInteger();
+    HttpService service1 = new HttpService("service1")
+        .when(get("/ping").and(request -> counter.incrementAndGet() > 0)).then(ok("pong"));
+    HttpService service2 = new HttpService("service2")
+        .mount("/path", service1);
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("pong")), service2.execute(Requests.get("/path/ping"))),
+        () -> assertEquals(1, counter.get())
+    );
+  }
+
+  @Test
+  public void pathParams() {
+    HttpService service1 = new HttpService("service1")
+        .when(get("/books/:id")).then(ok(Extractors.pathParam("id").andThen(Bytes::asBytes)));
+    HttpService service2 = new HttpService("service2")
+        .mount("/path", service1);
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("1")), service1.execute(Requests.get("/books/1"))),
+        () -> assertEquals(some(Responses.ok("2")), service2.execute(Requests.get("/path/books/2")))
+    );
+  }
+
   @Test
   public void combine() {
     HttpService service1 = new HttpService("service1").when(get("/ping")).then(ok("pong"));
@@ -66,6 +111,108 @@ public class HttpServiceTest {
     assertEquals(some(Responses.ok("pong")), service1.combine(service2).execute(Requests.get("/ping")));
   }
 
+  @Test
+  public void firstRegisteredWins() {
+    HttpService service = new HttpService("service")
+        .when(get("/books/:id")).then(ok("param"))
+        .when(request -> request.path().size() > 2).then(ok("deep"))
+        .when(get("/books/1")).then(ok("literal"))
+        .when(startsWith("/books")).then(ok("prefix"))
+        .when(get("/authors")).then(ok("authors"));
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("param")), service.execute(Requests.get("/books/1"))),
+        () -> assertEquals(some(Responses.ok("deep")), service.execute(Requests.get("/books/1/title"))),
+        () -> assertEquals(some(Responses.ok("prefix")), service.execute(Requests.put("/books/1"))),
+        () -> assertEquals(some(Responses.ok("authors")), service.execute(Requests.get("/authors"))),
+        () -> assertEquals(none(), service.execute(Requests.get("/publishers")))
+    );
+  }
+
+  @Test
+  public void plannedMatchers() {
+    HttpService service = new HttpService("service")
+        .when(param("id").and(request -> request.param("id").equals("1")).and(get("/books"))).then(ok("one"))
+        .when(get("/books").or(get("/authors"))).then(ok("any"));
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("one")), service.execute(Requests.get("/books").withParam("id", "1"))),
+        () -> assertEquals(some(Responses.ok("any")), service.execute(Requests.get("/books"))),
+        () -> assertEquals(some(Responses.ok("any")), service.execute(Requests.get("/authors"))),
+        () -> assertEquals(none(), service.execute(Requests.get("/publishers")))
+    );
+  }
+
+  @Test
+  public void exactRoutes() {
+    HttpService service = new HttpService("service").when(get("/books/:id")).then(ok("param"));
+    for (int i = 0; i < 1000; i++) {
+      service = service.when(get("/authors/" + i)).then(ok("author" + i));
+    }
+    HttpService routes = service
+        .when(get("/search").and(param("q", "a"))).then(ok("a"))
+        .when(get("/search").and(param("q", "b"))).then(ok("b"));
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("param")), routes.execute(Requests.get("/books/1"))),
+        () -> assertEquals(some(Responses.ok("author999")), routes.execute(Requests.get("/authors/999"))),
+        () -> assertEquals(some(Responses.ok("b")), routes.execute(Requests.get("/search").withParam("q", "b"))),
+        () -> assertEquals(none(), routes.execute(Requests.post("/authors/1"))),
+        () -> assertEquals(none(), routes.execute(Requests.get("/authors/1000")))
+    );
+  }
+
+  @Test
+  public void exactRoutesKeepRegistrationOrder() {
+    AtomicInteger counter = new AtomicInteger();
+    HttpService service = new HttpService("service")
+        .when(get("/users/:id")).then(ok("param"))
+        .when(get("/users/me").and(request -> counter.incrementAndGet() > 0)).then(ok("exact"))
+        .when(get("/other").and(request -> counter.incrementAndGet() < 0)).then(ok("exact"))
+        .when(get("/:name")).then(ok("fallback"));
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("param")), service.execute(Requests.get("/users/me"))),
+        () -> assertEquals(0, counter.get()),
+        () -> assertEquals(some(Responses.ok("fallback")), service.execute(Requests.get("/other"))),
+        () -> assertEquals(1, counter.get())
+    );
+  }
+
+  @Test
+  public void pathParamsInCombinedMatchers() {
+    HttpService service = new HttpService("service")
+        .when(startsWith("/a").and(get("/a/:id"))).then(request -> Responses.ok(request.pathParam("id")))
+        .when(get("/x/:id").or(get("/y/:id/:name"))).then(request -> Responses.ok(request.pathParam("id")))
+        .when(get("/z").or(get("/w/:id"))).then(request -> Responses.ok(request.pathParam("id")));
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("1")), service.execute(Requests.get("/a/1"))),
+        () -> assertEquals(some(Responses.ok("2")), service.execute(Requests.get("/x/2"))),
+        () -> assertEquals(some(Responses.ok("3")), service.execute(Requests.get("/y/3/name"))),
+        () -> assertEquals(some(Responses.ok("4")), service.execute(Requests.get("/w/4")))
+    );
+  }
+
+  @Test
+  public void cachedRoutes() {
+    HttpService service = new HttpService("service").cacheRoutes(10)
+        .when(get("/books/:id")).then(request -> Responses.ok(request.pathParam("id")))
+        .when(get("/authors").and(acceptsJson())).then(ok("json"))
+        .when(get("/authors")).then(ok("plain"));
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("1")), service.execute(Requests.get("/books/1"))),
+        () -> assertEquals(some(Responses.ok("1")), service.execute(Requests.get("/books/1"))),
+        () -> assertEquals(some(Responses.ok("2")), service.execute(Requests.get("/books/2"))),
+        () -> assertEquals(some(Responses.ok("plain")), service.execute(Requests.get("/authors"))),
+        () -> assertEquals(some(Responses.ok("json")),
+                           service.execute(Requests.get("/authors").withHeader("Accept", "application/json"))),
+        () -> assertEquals(none(), service.execute(Requests.get("/publishers"))),
+        () -> assertEquals(none(), service.execute(Requests.get("/publishers")))
+    );
+  }
+
   @Test
   public void filters() {
     HttpService service1 = new HttpService("service1")
@@ -80,4 +227,86 @@ public class HttpServiceTest {
             service1.execute(Requests.get("/ping")))
     );
   }
+
+  @Test
+  public void filtersInOrder() {
+    PreFilter trace = request -> Either.right(request.withHeader("X-Trace", "1"));
+    HttpService service1 = new HttpService("service1")
+        .preFilter(trace)
+        .when(get("/ping")).then(request -> Responses.ok(request.headers().contains("X-Trace") ? "traced" : "plain"))
+        .postFilter(response -> response.withHeader("X-Order", "1"));
+    HttpService service2 = new HttpService("service2")
+        .preFilter(header("X-Trace", "1")).then(forbidden())
+        .postFilter(response -> response.withHeader("X-Order", "2"));
+
+    assertAll(
+        () -> assertEquals(some(Responses.forbidden()), service1.combine(service2).execute(Requests.get("/ping"))),
+        () -> assertEquals(some(Responses.ok("traced").withHeader("X-Order", "2").withHeader("X-Order", "1")),
+                           service2.combine(service1).execute(Requests.get("/ping"))),
+        () -> assertEquals(some(Responses.ok("traced").withHeader("X-Order", "1")),
+                           service1.execute(Requests.get("/ping")))
+    );
+  }
+
+  @Test
+  public void decompress() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write("{\"key\":\"value\"}".getBytes(UTF_8));
+    }
+    HttpRequest request = Requests.post("/ping")
+        .withHeader("Content-Encoding", "gzip")
+        .withBody(Bytes.fromArray(output.toByteArray()));
+
+    HttpService service = new HttpService("service")
+        .preFilter(PreFilter.decompress(1024))
+        .when(post("/ping").and(body("{\"key\":\"value\"}"))).then(ok("pong"));
+    HttpService limited = new HttpService("limited")
+        .preFilter(PreFilter.decompress(8))
+        .when(post("/ping").and(body("{\"key\":\"value\"}"))).then(ok("pong"));
+
+    assertAll(
+        () -> assertEquals(some(Responses.ok("pong")), service.execute(request)),
+        () -> assertEquals(none(), new HttpService("plain")
+            .when(post("/ping").and(body("{\"key\":\"value\"}"))).then(ok("pong")).execute(request)),
+        () -> assertEquals(some(new HttpResponse(HttpStatus.PAYLOAD_TOO_LARGE, Bytes.empty())), limited.execute(request))
+    );
+  }
+
+  @Test
+  public void decompressInvalidBody() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write("{\"key\":\"value\"}".getBytes(UTF_8));
+    }
+    byte[] truncated = Arrays.copyOf(output.toByteArray(), output.size() / 2);
+    HttpRequest request = Requests.post("/ping").withHeader("Content-Encoding", "gzip");
+
+    HttpService service = new HttpService("service")
+        .preFilter(PreFilter.decompress(1024))
+        .when(post("/ping").and(body("{\"key\":\"value\"}"))).then(ok("pong"));
+
+    assertAll(
+        () -> assertEquals(some(Responses.badRequest()), service.execute(request.withBody("not compressed"))),
+        () -> assertEquals(some(Responses.badRequest()), service.execute(request.withBody(Bytes.fromArray(truncated))))
+    );
+  }
+
+  @Test
+  public void bodyMatchersKeepDeclaredOrder() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write("{\"key\":\"value\"}".getBytes(UTF_8));
+    }
+    HttpRequest request = Requests.post("/ping")
+        .withHeader("Content-Encoding", "gzip")
+        .withBody(Bytes.fromArray(output.toByteArray()));
+
+    HttpService service = new HttpService("service")
+        .preFilter(PreFilter.decompress(8))
+        .when(post("/ping").and(header("X-Check", "yes")).and(body("{\"key\":\"value\"}"))).then(ok("pong"))
+        .when(post("/ping").and(header("X-Other", "yes")).and(body("{\"key\":\"value\"}"))).then(ok("pong"));
+
+    assertEquals(none(), service.execute(request));
+  }
 }
@@ -5,6 +5,7 @@
 package com.github.tonivade.zeromock.api;
 
 import static com.github.tonivade.purefun.Matcher1.is;
+import static com.github.tonivade.zeromock.api.Matchers.acceptsJson;
 import static com.github.tonivade.zeromock.api.Matchers.body;
 import static com.github.tonivade.zeromock.api.Matchers.delete;
 import static com.github.tonivade.zeromock.api.Matchers.get;
@@ -16,6 +17,7 @@ import static com.github.tonivade.zeromock.api.Matchers.post;
 import static com.github.tonivade.zeromock.api.Matchers.put;
 import static com.github.tonivade.zeromock.api.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -52,4 +54,17 @@ public class MatchersTest {
     assertTrue(Matchers.jsonPath("$.a", is("x")).match(Requests.get("/test").withBody("{\"a\": \"x\"}")));
     assertFalse(Matchers.jsonPath("$.a", is("z")).match(Requests.get("/test").withBody("{\"a\": \"x\"}")));
   }
+
+  @Test
+  public void describe() {
+    RequestMatcher matcher = RequestMatcher.of(get("/test").and(acceptsJson()).or(param("key").negate()));
+
+    assertAll(
+        () -> assertEquals(RequestMatcher.Type.OR, matcher.type()),
+        () -> assertEquals(2, matcher.children().size()),
+        () -> assertEquals("((GET and path(/test) and header(Accept=application/json)) or not(param(key)))",
+                           matcher.toString()),
+        () -> assertEquals(RequestMatcher.Type.CUSTOM, RequestMatcher.of(request -> true).type())
+    );
+  }
 }
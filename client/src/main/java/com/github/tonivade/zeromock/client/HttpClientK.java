@@ -85,10 +85,11 @@ public class HttpClientK<F extends Witness> {
   private Kind<F, Bytes> body(HttpURLConnection connection) {
     return monad.later(() -> {
       Bytes body = Bytes.empty();
-      if (connection.getContentLength() > 0) {
+      // chunked responses have no content length
+      if (connection.getContentLength() != 0) {
         if (connection.getResponseCode() < BAD_REQUEST.code()) {
           body = asBytes(connection.getInputStream());
-        } else {
+        } else if (connection.getErrorStream() != null) {
           body = asBytes(connection.getErrorStream());
         }
       }
@@ -9,6 +9,7 @@ import static com.github.tonivade.zeromock.api.PreFilterK.filter;
 import static com.github.tonivade.zeromock.server.ResponseInterpreterK.async;
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
 import java.util.List;
 
 import com.github.tonivade.purefun.Matcher1;
@@ -20,6 +21,7 @@ import com.github.tonivade.zeromock.api.AsyncHttpService.MappingBuilder;
 import com.github.tonivade.zeromock.api.AsyncPostFilter;
 import com.github.tonivade.zeromock.api.AsyncPreFilter;
 import com.github.tonivade.zeromock.api.AsyncRequestHandler;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.PostFilter;
 import com.github.tonivade.zeromock.api.PreFilter;
@@ -66,6 +68,11 @@ public final class AsyncMockHttpServer implements HttpServer {
     return this;
   }
 
+  public AsyncMockHttpServer combine(AsyncHttpService other) {
+    serverK.combine(other.build());
+    return this;
+  }
+
   public AsyncMockHttpServer exec(AsyncRequestHandler handler) {
     serverK.exec(handler);
     return this;
@@ -130,11 +137,40 @@ public final class AsyncMockHttpServer implements HttpServer {
     return this;
   }
 
+  @Override
+  public AsyncMockHttpServer verify(Matcher1<HttpRequest> matcher, Times times) {
+    serverK.verify(matcher, times);
+    return this;
+  }
+
+  @Override
+  public AsyncMockHttpServer verify(HttpMethod method, String path, Times times) {
+    serverK.verify(method, path, times);
+    return this;
+  }
+
+  @Override
+  public AsyncMockHttpServer verifyInOrder(List<Matcher1<HttpRequest>> matchers) {
+    serverK.verifyInOrder(matchers);
+    return this;
+  }
+
+  @Override
+  public AsyncMockHttpServer await(Matcher1<HttpRequest> matcher, Duration timeout) {
+    serverK.await(matcher, timeout);
+    return this;
+  }
+
   @Override
   public List<HttpRequest> getUnmatched() {
     return serverK.getUnmatched();
   }
 
+  @Override
+  public ServerStats stats() {
+    return serverK.stats();
+  }
+
   @Override
   public void reset() {
     serverK.reset();
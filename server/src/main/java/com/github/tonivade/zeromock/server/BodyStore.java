@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.util.Objects.requireNonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import com.github.tonivade.purefun.Equal;
+import com.github.tonivade.zeromock.api.Bytes;
+import com.github.tonivade.zeromock.api.HttpRequest;
+
+// request bodies kept by the journal, identical bodies are stored once
+final class BodyStore {
+
+  private final long maxBytes;
+  private final int maxBodySize;
+  private final int compressAbove;
+  private final ConcurrentMap<Digest, Blob> blobs = new ConcurrentHashMap<>();
+  private final AtomicLong size = new AtomicLong();
+
+  BodyStore(long maxBytes, int maxBodySize, int compressAbove) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("invalid journal max bytes: " + maxBytes);
+    }
+    if (maxBodySize < 0) {
+      throw new IllegalArgumentException("invalid journal max body size: " + maxBodySize);
+    }
+    if (compressAbove < 0) {
+      throw new IllegalArgumentException("invalid journal compression threshold: " + compressAbove);
+    }
+    this.maxBytes = maxBytes;
+    this.maxBodySize = maxBodySize;
+    this.compressAbove = compressAbove;
+  }
+
+  static BodyStore unbounded() {
+    return new BodyStore(Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  // bytes used by the stored bodies, after deduplication and compression
+  long size() {
+    return size.get();
+  }
+
+  boolean isFull() {
+    return size.get() > maxBytes;
+  }
+
+  // null for empty bodies, bodies bigger than the limit are truncated
+  Blob store(Bytes body) {
+    if (body.isEmpty() || maxBodySize == 0) {
+      return null;
+    }
+    Bytes content = body.size() > maxBodySize ? prefix(body, maxBodySize) : body;
+    Digest key = Digest.of(content);
+    Blob existing = blobs.computeIfPresent(key, (k, blob) -> blob.retain());
+    if (existing != null) {
+      return existing;
+    }
+    Blob created = Blob.of(key, content, compressAbove);
+    Blob result = blobs.merge(key, created, (blob, ignore) -> blob.retain());
+    if (result == created) {
+      size.addAndGet(created.size());
+    }
+    return result;
+  }
+
+  void release(Blob blob) {
+    requireNonNull(blob);
+    boolean[] removed = { false };
+    blobs.computeIfPresent(blob.key, (k, current) -> {
+      if (current != blob || --current.refs > 0) {
+        return current;
+      }
+      removed[0] = true;
+      return null;
+    });
+    if (removed[0]) {
+      size.addAndGet(-blob.size());
+    }
+  }
+
+  private static Bytes prefix(Bytes body, int size) {
+    byte[] prefix = new byte[size];
+    body.getBuffer().get(prefix);
+    return Bytes.fromArray(prefix);
+  }
+
+  static final class Blob {
+
+    private final Digest key;
+    private final Bytes data;
+    private final int length;
+    private final boolean compressed;
+
+    // only changed inside the map operations, they are atomic for the same key
+    private int refs = 1;
+
+    private Blob(Digest key, Bytes data, int length, boolean compressed) {
+      this.key = requireNonNull(key);
+      this.data = requireNonNull(data);
+      this.length = length;
+      this.compressed = compressed;
+    }
+
+    int size() {
+      return data.size();
+    }
+
+    // compressed bodies are inflated only if the body is read
+    HttpRequest attach(HttpRequest request) {
+      if (!compressed) {
+        return request.withBody(data);
+      }
+      return new HttpRequest(request.method(), request.path(),
+          new InflaterInputStream(data.toInputStream()), length, request.headers(), request.params());
+    }
+
+    private Blob retain() {
+      refs++;
+      return this;
+    }
+
+    private static Blob of(Digest key, Bytes content, int compressAbove) {
+      if (content.size() > compressAbove) {
+        Bytes deflated = deflate(content);
+        if (deflated.size() < content.size()) {
+          return new Blob(key, deflated, content.size(), true);
+        }
+      }
+      return new Blob(key, content, content.size(), false);
+    }
+
+    private static Bytes deflate(Bytes content) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream(content.size() / 2);
+      try (DeflaterOutputStream deflater = new DeflaterOutputStream(output)) {
+        deflater.write(content.toArray());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return Bytes.fromArray(output.toByteArray());
+    }
+  }
+
+  private static final class Digest {
+
+    private static final Equal<Digest> EQUAL = Equal.<Digest>of()
+        .append((a, b) -> Arrays.equals(a.value, b.value));
+
+    private final byte[] value;
+
+    private Digest(byte[] value) {
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return EQUAL.applyTo(this, obj);
+    }
+
+    private static Digest of(Bytes content) {
+      try {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(content.getBuffer());
+        return new Digest(digest.digest());
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
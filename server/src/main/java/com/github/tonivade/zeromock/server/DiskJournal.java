@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.zeromock.api.Bytes;
+import com.github.tonivade.zeromock.api.HttpRequest;
+
+// append only journal in segment files, they are kept on disk after the server is stopped,
+// only the segment being written is memory mapped, the full ones are read from the files
+final class DiskJournal {
+
+  private static final Logger LOG = Logger.getLogger(DiskJournal.class.getName());
+
+  private static final String PREFIX = "segment-";
+  private static final String SUFFIX = ".journal";
+  private static final Pattern SEGMENT = Pattern.compile(Pattern.quote(PREFIX) + "(\\d{1,18})" + Pattern.quote(SUFFIX));
+
+  private final Path directory;
+  private final int segmentSize;
+  private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+  // segments hidden by reset, they are still on disk
+  private volatile int first;
+
+  private Segment current;
+  private long next;
+
+  DiskJournal(Path directory, int segmentSize) {
+    if (segmentSize < 1) {
+      throw new IllegalArgumentException("invalid journal segment size: " + segmentSize);
+    }
+    this.directory = requireNonNull(directory);
+    this.segmentSize = segmentSize;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("unable to create journal at " + directory, e);
+    }
+    // a new run goes after the segments of the previous ones
+    this.next = nextNumber(directory);
+  }
+
+  // the record is encoded before taking the lock, the sequence is taken with the lock held,
+  // so the records are written in sequence order
+  long append(AtomicLong sequence, Instant timestamp, HttpRequest request, Option<Bytes> body) {
+    ByteBuffer record = JournalCodec.encode(0, timestamp, request, body);
+    return write(record, sequence);
+  }
+
+  // a sequential scan of all the records written since the last reset
+  Stream<JournalRecord> scan() {
+    List<Segment> visible = new ArrayList<>(segments);
+    return visible.subList(Math.min(first, visible.size()), visible.size()).stream()
+        .flatMap(Segment::records);
+  }
+
+  synchronized void clear() {
+    seal();
+    first = segments.size();
+  }
+
+  synchronized void close() {
+    seal();
+  }
+
+  // the sequence is taken even if the record can not be written, it is still kept in memory
+  private synchronized long write(ByteBuffer record, AtomicLong sequence) {
+    long next = sequence.getAndIncrement();
+    JournalCodec.sequence(record, next);
+    try {
+      if (current == null || current.buffer.remaining() < record.remaining()) {
+        seal();
+        current = open(Math.max(segmentSize, record.remaining()));
+        segments.add(current);
+      }
+      current.buffer.put(record);
+      current.committed = current.buffer.position();
+    } catch (IOException e) {
+      LOG.log(Level.SEVERE, "unable to write request to journal " + directory, e);
+    }
+    return next;
+  }
+
+  private void seal() {
+    if (current != null) {
+      current.seal();
+      current = null;
+    }
+  }
+
+  private Segment open(int size) throws IOException {
+    Path file = directory.resolve(String.format("%s%010d%s", PREFIX, next++, SUFFIX));
+    try (FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+      return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+  }
+
+  // records of a segment file, read without mapping it
+  static Stream<JournalRecord> read(Path file) {
+    try {
+      return JournalCodec.decodeAll(FileChannel.open(file, READ));
+    } catch (IOException e) {
+      throw new UncheckedIOException("unable to read journal segment " + file, e);
+    }
+  }
+
+  // segment files of a journal directory in the order they were written
+  static List<Path> files(Path directory) {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(DiskJournal::isSegment).sorted().collect(toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException("unable to read journal at " + directory, e);
+    }
+  }
+
+  private static long nextNumber(Path directory) {
+    long last = -1;
+    for (Path file : files(directory)) {
+      Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+      if (matcher.matches()) {
+        last = Math.max(last, Long.parseLong(matcher.group(1)));
+      }
+    }
+    return last + 1;
+  }
+
+  // other files left in the directory are ignored
+  private static boolean isSegment(Path file) {
+    return SEGMENT.matcher(file.getFileName().toString()).matches() && Files.isRegularFile(file);
+  }
+
+  private static final class Segment {
+
+    private final Path file;
+
+    // unmapped once the segment is full, then the records are read from the file
+    private volatile MappedByteBuffer buffer;
+
+    // records before this position are complete, written by the appender and read by the scans
+    private volatile int committed;
+
+    private Segment(Path file, MappedByteBuffer buffer) {
+      this.file = requireNonNull(file);
+      this.buffer = requireNonNull(buffer);
+    }
+
+    private Stream<JournalRecord> records() {
+      MappedByteBuffer current = buffer;
+      if (current == null) {
+        return read(file);
+      }
+      ByteBuffer view = current.duplicate();
+      view.position(0);
+      view.limit(committed);
+      return JournalCodec.decodeAll(view);
+    }
+
+    // the mapping is released when the last scan using it finishes
+    private void seal() {
+      buffer.force();
+      buffer = null;
+    }
+  }
+}
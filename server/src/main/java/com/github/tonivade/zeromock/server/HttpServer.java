@@ -4,8 +4,10 @@
  */
 package com.github.tonivade.zeromock.server;
 
+import java.time.Duration;
 import java.util.List;
 import com.github.tonivade.purefun.Matcher1;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 
 public interface HttpServer {
@@ -20,6 +22,12 @@ public interface HttpServer {
 
   HttpServer verify(Matcher1<HttpRequest> matcher);
   HttpServer verifyNot(Matcher1<HttpRequest> matcher);
+  HttpServer verify(Matcher1<HttpRequest> matcher, Times times);
+  HttpServer verify(HttpMethod method, String path, Times times);
+  HttpServer verifyInOrder(List<Matcher1<HttpRequest>> matchers);
+  HttpServer await(Matcher1<HttpRequest> matcher, Duration timeout);
 
   List<HttpRequest> getUnmatched();
+
+  ServerStats stats();
 }
@@ -11,6 +11,7 @@ import static com.github.tonivade.zeromock.server.ResponseInterpreterK.ioAsync;
 import static com.github.tonivade.zeromock.server.ResponseInterpreterK.ioSync;
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.Executor;
 
@@ -20,6 +21,7 @@ import com.github.tonivade.purefun.monad.IO;
 import com.github.tonivade.purefun.monad.IO_;
 import com.github.tonivade.zeromock.api.HttpIOService;
 import com.github.tonivade.zeromock.api.HttpIOService.MappingBuilder;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.IOPostFilter;
 import com.github.tonivade.zeromock.api.IOPreFilter;
@@ -72,6 +74,11 @@ public final class IOMockHttpServer implements HttpServer {
     return this;
   }
 
+  public IOMockHttpServer combine(HttpIOService other) {
+    serverK.combine(other.build());
+    return this;
+  }
+
   public IOMockHttpServer exec(IORequestHandler handler) {
     serverK.exec(handler);
     return this;
@@ -136,11 +143,40 @@ public final class IOMockHttpServer implements HttpServer {
     return this;
   }
 
+  @Override
+  public IOMockHttpServer verify(Matcher1<HttpRequest> matcher, Times times) {
+    serverK.verify(matcher, times);
+    return this;
+  }
+
+  @Override
+  public IOMockHttpServer verify(HttpMethod method, String path, Times times) {
+    serverK.verify(method, path, times);
+    return this;
+  }
+
+  @Override
+  public IOMockHttpServer verifyInOrder(List<Matcher1<HttpRequest>> matchers) {
+    serverK.verifyInOrder(matchers);
+    return this;
+  }
+
+  @Override
+  public IOMockHttpServer await(Matcher1<HttpRequest> matcher, Duration timeout) {
+    serverK.await(matcher, timeout);
+    return this;
+  }
+
   @Override
   public List<HttpRequest> getUnmatched() {
     return serverK.getUnmatched();
   }
 
+  @Override
+  public ServerStats stats() {
+    return serverK.stats();
+  }
+
   @Override
   public void reset() {
     serverK.reset();
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.zeromock.api.Bytes;
+import com.github.tonivade.zeromock.api.FileStream;
+import com.github.tonivade.zeromock.api.HttpHeaders;
+import com.github.tonivade.zeromock.api.HttpMethod;
+import com.github.tonivade.zeromock.api.HttpParams;
+import com.github.tonivade.zeromock.api.HttpPath;
+import com.github.tonivade.zeromock.api.HttpRequest;
+import com.github.tonivade.zeromock.api.HttpResponse;
+import com.github.tonivade.zeromock.api.MappedStream;
+import com.github.tonivade.zeromock.api.ResponseStream;
+import com.github.tonivade.zeromock.api.Responses;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+@SuppressWarnings("restriction")
+final class JdkTransport implements ServerTransport {
+
+  private static final String ROOT = "/";
+  private static final int BUFFER_SIZE = 8192;
+
+  private final HttpServer server;
+
+  JdkTransport(HttpServer server) {
+    this.server = requireNonNull(server);
+  }
+
+  @Override
+  public void bind(RequestDispatcher dispatcher) {
+    requireNonNull(dispatcher);
+    server.createContext(ROOT, exchange -> handle(dispatcher, exchange));
+  }
+
+  @Override
+  public InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  // the jdk server does not expose its acceptor, and the executor is only known if it was created by the builder
+  @Override
+  public ServerStats stats() {
+    if (server.getExecutor() instanceof ServerExecutor) {
+      return ((ServerExecutor) server.getExecutor()).stats(emptyList());
+    }
+    return ServerStats.EMPTY;
+  }
+
+  @Override
+  public void start() {
+    server.start();
+  }
+
+  @Override
+  public void stop() {
+    server.stop(0);
+    if (server.getExecutor() instanceof ServerExecutor) {
+      ((ServerExecutor) server.getExecutor()).shutdown();
+    }
+  }
+
+  private void handle(RequestDispatcher dispatcher, HttpExchange exchange) {
+    if (ServerExecutor.isShed()) {
+      processResponse(exchange, Responses.unavailable());
+      return;
+    }
+    HttpRequest request = createRequest(exchange);
+    dispatcher.dispatch(request, response -> processResponse(exchange, request, response));
+  }
+
+  private HttpRequest createRequest(HttpExchange exchange) {
+    HttpMethod method = HttpMethod.valueOf(exchange.getRequestMethod());
+    HttpHeaders headers = HttpHeaders.from(exchange.getRequestHeaders());
+    HttpParams params = new HttpParams(exchange.getRequestURI().getQuery());
+    HttpPath path = HttpPath.from(exchange.getRequestURI().getPath());
+    return new HttpRequest(method, path, exchange.getRequestBody(), contentLength(exchange), headers, params);
+  }
+
+  // the request may be kept after the exchange is closed, so the unread body is buffered before answering
+  private void processResponse(HttpExchange exchange, HttpRequest request, HttpResponse response) {
+    try {
+      request.detach();
+      processResponse(exchange, response);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void processResponse(HttpExchange exchange, HttpResponse response) {
+    Option<ResponseStream> stream = response.stream();
+    if (stream.isPresent()) {
+      processStream(exchange, response, stream.get());
+      return;
+    }
+    try {
+      Bytes bytes = response.body();
+      response.headers().forEach((key, value) -> exchange.getResponseHeaders().add(key, value));
+      exchange.sendResponseHeaders(response.status().code(), bytes.size());
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(bytes.toArray());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  // the jdk server uses chunked encoding when the length is zero
+  private void processStream(HttpExchange exchange, HttpResponse response, ResponseStream stream) {
+    try {
+      long length = stream.length();
+      response.headers().forEach((key, value) -> exchange.getResponseHeaders().add(key, value));
+      exchange.sendResponseHeaders(response.status().code(), length == 0 ? -1 : Math.max(length, 0));
+      try (WritableByteChannel output = Channels.newChannel(exchange.getResponseBody())) {
+        copy(stream, output);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static void copy(ResponseStream stream, WritableByteChannel output) throws IOException {
+    if (stream instanceof FileStream) {
+      transfer((FileStream) stream, output);
+    } else if (stream instanceof MappedStream) {
+      write(((MappedStream) stream).buffer(), output);
+    } else {
+      try (ReadableByteChannel source = stream.open()) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (source.read(buffer) >= 0) {
+          buffer.flip();
+          write(buffer, output);
+          buffer.clear();
+        }
+      }
+    }
+  }
+
+  private static void transfer(FileStream file, WritableByteChannel output) throws IOException {
+    try (FileChannel channel = file.openChannel()) {
+      long position = file.position();
+      long end = position + file.length();
+      while (position < end) {
+        long written = channel.transferTo(position, end - position, output);
+        if (written <= 0) {
+          throw new IOException("file truncated: " + file.path());
+        }
+        position += written;
+      }
+    }
+  }
+
+  private static void write(ByteBuffer buffer, WritableByteChannel output) throws IOException {
+    while (buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+  }
+
+  private static int contentLength(HttpExchange exchange) {
+    String value = exchange.getRequestHeaders().getFirst("Content-Length");
+    if (value == null) {
+      return -1;
+    }
+    try {
+      long length = Long.parseLong(value.trim());
+      return length <= Integer.MAX_VALUE ? (int) length : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.zeromock.api.Bytes;
+import com.github.tonivade.zeromock.api.HttpHeaders;
+import com.github.tonivade.zeromock.api.HttpMethod;
+import com.github.tonivade.zeromock.api.HttpParams;
+import com.github.tonivade.zeromock.api.HttpPath;
+import com.github.tonivade.zeromock.api.HttpRequest;
+
+// record: length, sequence, epoch millis, method, path, params, headers, captured flag and body,
+// a zero length ends the segment
+final class JournalCodec {
+
+  private static final Logger LOG = Logger.getLogger(JournalCodec.class.getName());
+
+  private static final int SEQUENCE_OFFSET = Integer.BYTES;
+
+  private JournalCodec() {}
+
+  static ByteBuffer encode(long sequence, Instant timestamp, HttpRequest request, Option<Bytes> captured) {
+    List<String> params = new ArrayList<>();
+    request.params().forEach((key, value) -> { params.add(key); params.add(value); });
+    List<String> headers = new ArrayList<>();
+    request.headers().forEach((key, value) -> { headers.add(key); headers.add(value); });
+    Bytes body = captured.isPresent() ? captured.get() : Bytes.empty();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + body.size());
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(0);
+      output.writeLong(sequence);
+      output.writeLong(timestamp.toEpochMilli());
+      output.writeByte(request.method().ordinal());
+      writeString(output, request.path().toPath());
+      writePairs(output, params);
+      writePairs(output, headers);
+      output.writeBoolean(captured.isPresent());
+      output.writeInt(body.size());
+      output.write(body.toArray());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+    record.putInt(0, record.remaining() - Integer.BYTES);
+    return record;
+  }
+
+  // the sequence of an encoded record can be set later, just before it is written
+  static void sequence(ByteBuffer record, long sequence) {
+    record.putLong(record.position() + SEQUENCE_OFFSET, sequence);
+  }
+
+  // records until the end of the buffer or the first zero length
+  static Stream<JournalRecord> decodeAll(ByteBuffer buffer) {
+    return stream(() -> decode(buffer));
+  }
+
+  // records read one by one from the channel, it is closed with the stream
+  static Stream<JournalRecord> decodeAll(ReadableByteChannel channel) {
+    return stream(() -> read(channel)).onClose(() -> {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "error closing journal segment", e);
+      }
+    });
+  }
+
+  // nothing is read until the stream is consumed, so a failure never happens before the stream can be closed
+  private static Stream<JournalRecord> stream(Supplier<JournalRecord> reader) {
+    Iterator<JournalRecord> iterator = new Iterator<JournalRecord>() {
+
+      private JournalRecord next;
+      private boolean fetched;
+
+      @Override
+      public boolean hasNext() {
+        if (!fetched) {
+          next = reader.get();
+          fetched = true;
+        }
+        return next != null;
+      }
+
+      @Override
+      public JournalRecord next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        fetched = false;
+        return next;
+      }
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+  }
+
+  private static JournalRecord decode(ByteBuffer buffer) {
+    if (buffer.remaining() < Integer.BYTES) {
+      return null;
+    }
+    int length = buffer.getInt();
+    if (length <= 0 || length > buffer.remaining()) {
+      return null;
+    }
+    ByteBuffer record = buffer.slice();
+    record.limit(length);
+    buffer.position(buffer.position() + length);
+    return decodeRecord(record);
+  }
+
+  private static JournalRecord read(ReadableByteChannel channel) {
+    try {
+      ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+      if (!readFully(channel, length)) {
+        return null;
+      }
+      int size = length.getInt(0);
+      if (size <= 0) {
+        return null;
+      }
+      ByteBuffer record = ByteBuffer.allocate(size);
+      if (!readFully(channel, record)) {
+        return null;
+      }
+      record.flip();
+      return decodeRecord(record);
+    } catch (IOException e) {
+      throw new UncheckedIOException("error reading journal segment", e);
+    }
+  }
+
+  private static JournalRecord decodeRecord(ByteBuffer record) {
+    long sequence = record.getLong();
+    Instant timestamp = Instant.ofEpochMilli(record.getLong());
+    HttpMethod method = HttpMethod.values()[record.get()];
+    HttpPath path = HttpPath.from(readString(record));
+    HttpParams params = HttpParams.empty();
+    for (int count = record.getInt(); count > 0; count--) {
+      params = params.withParam(readString(record), readString(record));
+    }
+    HttpHeaders headers = HttpHeaders.empty();
+    for (int count = record.getInt(); count > 0; count--) {
+      headers = headers.withHeader(readString(record), readString(record));
+    }
+    boolean captured = record.get() != 0;
+    byte[] body = new byte[record.getInt()];
+    record.get(body);
+    return new JournalRecord(sequence, timestamp,
+        new HttpRequest(method, path, Bytes.fromArray(body), headers, params), captured);
+  }
+
+  // false when the channel ends before the buffer is full
+  private static boolean readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writePairs(DataOutputStream output, List<String> pairs) throws IOException {
+    output.writeInt(pairs.size() / 2);
+    for (String value : pairs) {
+      writeString(output, value);
+    }
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+}
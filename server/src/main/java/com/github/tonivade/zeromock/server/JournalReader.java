@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+// reads the journal written with journalDirectory, for example to export the requests after a run
+public final class JournalReader {
+
+  private JournalReader() {}
+
+  // the matched and unmatched requests are written in the directories with the same name
+  public static Stream<JournalRecord> read(Path directory) {
+    return DiskJournal.files(directory).stream().flatMap(DiskJournal::read);
+  }
+}
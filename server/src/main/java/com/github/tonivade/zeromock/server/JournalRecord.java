@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.util.Objects.requireNonNull;
+import java.time.Instant;
+import com.github.tonivade.zeromock.api.HttpRequest;
+
+public final class JournalRecord {
+
+  private final long sequence;
+  private final Instant timestamp;
+  private final HttpRequest request;
+  private final boolean bodyCaptured;
+
+  JournalRecord(long sequence, Instant timestamp, HttpRequest request, boolean bodyCaptured) {
+    this.sequence = sequence;
+    this.timestamp = requireNonNull(timestamp);
+    this.request = requireNonNull(request);
+    this.bodyCaptured = bodyCaptured;
+  }
+
+  public long sequence() {
+    return sequence;
+  }
+
+  public Instant timestamp() {
+    return timestamp;
+  }
+
+  public HttpRequest request() {
+    return request;
+  }
+
+  // false when the body was not read while the request was handled, then the request has an empty body
+  public boolean isBodyCaptured() {
+    return bodyCaptured;
+  }
+
+  @Override
+  public String toString() {
+    return "JournalRecord(" + sequence + " " + timestamp + " " + request + ")";
+  }
+}
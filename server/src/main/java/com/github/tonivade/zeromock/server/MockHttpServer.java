@@ -9,11 +9,13 @@ import static com.github.tonivade.zeromock.api.PreFilterK.filter;
 import static com.github.tonivade.zeromock.server.ResponseInterpreterK.sync;
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
 import java.util.List;
 
 import com.github.tonivade.purefun.Matcher1;
 import com.github.tonivade.purefun.instances.IdInstances;
 import com.github.tonivade.purefun.type.Id_;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.HttpService;
 import com.github.tonivade.zeromock.api.HttpService.MappingBuilder;
@@ -63,6 +65,11 @@ public final class MockHttpServer implements HttpServer {
     return this;
   }
 
+  public MockHttpServer combine(HttpService other) {
+    serverK.combine(other.build());
+    return this;
+  }
+
   public MockHttpServer exec(RequestHandler handler) {
     serverK.exec(handler.liftId()::apply);
     return this;
@@ -119,11 +126,40 @@ public final class MockHttpServer implements HttpServer {
     return this;
   }
 
+  @Override
+  public MockHttpServer verify(Matcher1<HttpRequest> matcher, Times times) {
+    serverK.verify(matcher, times);
+    return this;
+  }
+
+  @Override
+  public MockHttpServer verify(HttpMethod method, String path, Times times) {
+    serverK.verify(method, path, times);
+    return this;
+  }
+
+  @Override
+  public MockHttpServer verifyInOrder(List<Matcher1<HttpRequest>> matchers) {
+    serverK.verifyInOrder(matchers);
+    return this;
+  }
+
+  @Override
+  public MockHttpServer await(Matcher1<HttpRequest> matcher, Duration timeout) {
+    serverK.await(matcher, timeout);
+    return this;
+  }
+
   @Override
   public List<HttpRequest> getUnmatched() {
     return serverK.getUnmatched();
   }
 
+  @Override
+  public ServerStats stats() {
+    return serverK.stats();
+  }
+
   @Override
   public void reset() {
     serverK.reset();
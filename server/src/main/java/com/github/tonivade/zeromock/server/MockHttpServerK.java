@@ -4,30 +4,31 @@
  */
 package com.github.tonivade.zeromock.server;
 
-import static com.github.tonivade.zeromock.api.Bytes.asBytes;
 import static com.github.tonivade.zeromock.api.Responses.error;
-import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import com.github.tonivade.purefun.Kind;
 import com.github.tonivade.purefun.Matcher1;
+import com.github.tonivade.purefun.Operator1;
 import com.github.tonivade.purefun.Witness;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.purefun.typeclasses.Monad;
-import com.github.tonivade.zeromock.api.Bytes;
-import com.github.tonivade.zeromock.api.HttpHeaders;
 import com.github.tonivade.zeromock.api.HttpMethod;
-import com.github.tonivade.zeromock.api.HttpParams;
 import com.github.tonivade.zeromock.api.HttpPath;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.HttpResponse;
@@ -37,8 +38,6 @@ import com.github.tonivade.zeromock.api.PostFilterK;
 import com.github.tonivade.zeromock.api.PreFilterK;
 import com.github.tonivade.zeromock.api.RequestHandlerK;
 import com.github.tonivade.zeromock.api.Responses;
-import com.sun.net.httpserver.HttpContext;
-import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 
 @SuppressWarnings("restriction")
@@ -47,42 +46,66 @@ public class MockHttpServerK<F extends Witness> implements com.github.tonivade.z
   private static final Logger LOG = Logger.getLogger(MockHttpServerK.class.getName());
 
   private static final String ROOT = "/";
+  private static final int JOURNAL_CAPACITY = 100;
+  private static final int JOURNAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+  private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(1);
+  private static final int MAX_REQUEST_SIZE = 64 * 1024 * 1024;
+  private static final int SHED_THREADS = 2;
 
-  private final HttpServer server;
-  private final HttpContext context;
+  private final ServerTransport transport;
   private final Monad<F> monad;
   private final ResponseInterpreterK<F> interpreter;
 
-  private final Map<Instant, HttpRequest> matched = new LimitedSizeMap<>(100);
-  private final Map<Instant, HttpRequest> unmatched = new LimitedSizeMap<>(100);
+  private final RequestJournal matched;
+  private final RequestJournal unmatched;
 
-  private HttpServiceK<F> service;
+  private final AtomicReference<HttpServiceK<F>> service;
 
   protected MockHttpServerK(HttpServer server, Monad<F> monad, ResponseInterpreterK<F> interpreter) {
-    this.server = requireNonNull(server);
+    this(new JdkTransport(server), monad, interpreter);
+  }
+
+  MockHttpServerK(ServerTransport transport, Monad<F> monad, ResponseInterpreterK<F> interpreter) {
+    this(transport, monad, interpreter, new RequestJournal(JOURNAL_CAPACITY), new RequestJournal(JOURNAL_CAPACITY));
+  }
+
+  MockHttpServerK(ServerTransport transport, Monad<F> monad, ResponseInterpreterK<F> interpreter,
+                  RequestJournal matched, RequestJournal unmatched) {
+    this.transport = requireNonNull(transport);
     this.monad = requireNonNull(monad);
     this.interpreter = requireNonNull(interpreter);
-    this.service = new HttpServiceK<>("root", monad);
-    this.context = server.createContext(ROOT, this::handle);
+    this.service = new AtomicReference<>(new HttpServiceK<>("root", monad));
+    this.matched = requireNonNull(matched);
+    this.unmatched = requireNonNull(unmatched);
+    transport.bind(this::dispatch);
   }
 
   @Override
   public int getPort() {
-    return server.getAddress().getPort();
+    return transport.getAddress().getPort();
   }
 
   @Override
   public String getPath() {
-    return context.getPath();
+    return ROOT;
   }
 
   public MockHttpServerK<F> mount(String path, HttpServiceK<F> other) {
-    service = service.mount(path, other);
-    return this;
+    return update(current -> current.mount(path, other));
   }
 
   public MockHttpServerK<F> exec(RequestHandlerK<F> handler) {
-    service = service.exec(handler);
+    return update(current -> current.exec(handler));
+  }
+
+  public MockHttpServerK<F> combine(HttpServiceK<F> other) {
+    return batch(current -> current.combine(other));
+  }
+
+  // changes are applied to a copy that is published at once, requests see all of them or none,
+  // the route index is built once for the whole batch
+  public MockHttpServerK<F> batch(Operator1<HttpServiceK<F>> changes) {
+    publish(changes).prepare();
     return this;
   }
 
@@ -95,25 +118,26 @@ public class MockHttpServerK<F extends Witness> implements com.github.tonivade.z
   }
 
   public MockHttpServerK<F> preFilter(PreFilterK<F> filter) {
-    service = service.preFilter(filter);
-    return this;
+    return update(current -> current.preFilter(filter));
   }
 
   public MockHttpServerK<F> postFilter(PostFilterK<F> filter) {
-    service = service.postFilter(filter);
-    return this;
+    return update(current -> current.postFilter(filter));
   }
 
   @Override
   public MockHttpServerK<F> start() {
-    server.start();
-    LOG.info(() -> "server listening at " + server.getAddress());
+    service.get().prepare();
+    transport.start();
+    LOG.info(() -> "server listening at " + transport.getAddress());
     return this;
   }
 
   @Override
   public void stop() {
-    server.stop(0);
+    transport.stop();
+    matched.close();
+    unmatched.close();
     LOG.info(() -> "server stopped");
   }
 
@@ -133,40 +157,120 @@ public class MockHttpServerK<F extends Witness> implements com.github.tonivade.z
     return this;
   }
 
+  // only the requests still kept in the journal, or written to disk, are counted
+  @Override
+  public MockHttpServerK<F> verify(Matcher1<HttpRequest> matcher, Times times) {
+    requireNonNull(matcher);
+    return check(times, matched.history().filter(matcher::match).count());
+  }
+
+  // counted by method and path when the request is received, the path can be a pattern like /users/:id
+  @Override
+  public MockHttpServerK<F> verify(HttpMethod method, String path, Times times) {
+    requireNonNull(method);
+    return check(times, matched.count(method, HttpPath.from(path)));
+  }
+
+  @Override
+  public MockHttpServerK<F> verifyInOrder(List<Matcher1<HttpRequest>> matchers) {
+    Iterator<Matcher1<HttpRequest>> expected = matchers.iterator();
+    Iterator<HttpRequest> requests = matched.history().iterator();
+    Matcher1<HttpRequest> current = expected.hasNext() ? expected.next() : null;
+    while (current != null && requests.hasNext()) {
+      if (current.match(requests.next())) {
+        current = expected.hasNext() ? expected.next() : null;
+      }
+    }
+    if (current != null) {
+      throw new AssertionError("requests not found in order");
+    }
+    return this;
+  }
+
+  // blocks until a matching request is received, it is woken up by the journal instead of polling
+  @Override
+  public MockHttpServerK<F> await(Matcher1<HttpRequest> matcher, Duration timeout) {
+    requireNonNull(timeout);
+    try {
+      if (!matched.await(matcher, timeout)) {
+        throw new AssertionError("request not found after " + timeout);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AssertionError("interrupted waiting for request", e);
+    }
+    return this;
+  }
+
   @Override
   public List<HttpRequest> getUnmatched() {
-    return unmodifiableList(new ArrayList<>(unmatched.values()));
+    return unmatched.requests();
+  }
+
+  @Override
+  public ServerStats stats() {
+    return transport.stats();
   }
 
   @Override
   public void reset() {
-    service = new HttpServiceK<>("root", monad);
+    service.set(new HttpServiceK<>("root", monad));
     matched.clear();
     unmatched.clear();
   }
 
-  protected MockHttpServerK<F> addMapping(Matcher1<HttpRequest> matcher, RequestHandlerK<F> handler) {
-    service = service.addMapping(matcher, handler);
+  // single changes don't build the route index, it is built on start, after a batch or on the first request
+  private MockHttpServerK<F> update(Operator1<HttpServiceK<F>> change) {
+    publish(change);
     return this;
   }
 
+  // the change may run again if another thread publishes first, so it must be cheap
+  private HttpServiceK<F> publish(Operator1<HttpServiceK<F>> changes) {
+    requireNonNull(changes);
+    while (true) {
+      HttpServiceK<F> current = service.get();
+      HttpServiceK<F> next = changes.apply(current);
+      if (service.compareAndSet(current, next)) {
+        return next;
+      }
+    }
+  }
+
+  protected MockHttpServerK<F> addMapping(Matcher1<HttpRequest> matcher, RequestHandlerK<F> handler) {
+    return update(current -> current.addMapping(matcher, handler));
+  }
+
   protected MockHttpServerK<F> addPreFilter(Matcher1<HttpRequest> matcher, RequestHandlerK<F> handler) {
-    service = service.addPreFilter(matcher, handler);
-    return this;
+    return update(current -> current.addPreFilter(matcher, handler));
   }
 
-  private void handle(HttpExchange exchange) throws IOException {
-    HttpRequest request = createRequest(exchange);
+  private void dispatch(HttpRequest request, Consumer<HttpResponse> reply) {
+    HttpServiceK<F> current = service.get();
+    if (current.isSync()) {
+      dispatchSync(request, reply, current);
+      return;
+    }
     try {
-      Kind<F, HttpResponse> response = monad.map(execute(request), option -> fold(request, option));
+      Kind<F, HttpResponse> response = monad.map(current.execute(request), option -> fold(request, option));
       interpreter.run(response)
-        .onSuccess(res -> processResponse(exchange, res))
-        .onFailure(err -> processResponse(exchange, error(err)));
+        .onSuccess(res -> reply.accept(res))
+        .onFailure(err -> reply.accept(error(err)));
     } catch (Exception e) {
-      processResponse(exchange, error(e));
+      reply.accept(error(e));
     }
   }
 
+  private void dispatchSync(HttpRequest request, Consumer<HttpResponse> reply, HttpServiceK<F> current) {
+    HttpResponse response;
+    try {
+      response = fold(request, current.executeSync(request));
+    } catch (Exception e) {
+      response = error(e);
+    }
+    reply.accept(response);
+  }
+
   private HttpResponse fold(HttpRequest request, Option<HttpResponse> option) {
     return option
         .ifPresent(response -> matched(request))
@@ -176,43 +280,23 @@ public class MockHttpServerK<F extends Witness> implements com.github.tonivade.z
 
   private void unmatched(HttpRequest request) {
     LOG.fine(() -> "unmatched request " + request);
-    unmatched.put(Instant.now(), request);
+    unmatched.append(request);
   }
 
   private void matched(HttpRequest request) {
-    matched.put(Instant.now(), request);
+    matched.append(request);
   }
 
-  private boolean matches(Matcher1<HttpRequest> matcher) {
-    return matched.values().stream().anyMatch(matcher::match);
-  }
-
-  private Kind<F, Option<HttpResponse>> execute(HttpRequest request) {
-    return service.execute(request);
-  }
-
-  private HttpRequest createRequest(HttpExchange exchange) throws IOException {
-    HttpMethod method = HttpMethod.valueOf(exchange.getRequestMethod());
-    HttpHeaders headers = HttpHeaders.from(exchange.getRequestHeaders());
-    HttpParams params = new HttpParams(exchange.getRequestURI().getQuery());
-    HttpPath path = HttpPath.from(exchange.getRequestURI().getPath());
-    Bytes body = asBytes(exchange.getRequestBody());
-    return new HttpRequest(method, path, body, headers, params);
+  private MockHttpServerK<F> check(Times times, long count) {
+    requireNonNull(times);
+    if (!times.matches(count)) {
+      throw new AssertionError("expected " + times + " requests but found " + count);
+    }
+    return this;
   }
 
-  private void processResponse(HttpExchange exchange, HttpResponse response) {
-    try {
-      Bytes bytes = response.body();
-      response.headers().forEach((key, value) -> exchange.getResponseHeaders().add(key, value));
-      exchange.sendResponseHeaders(response.status().code(), bytes.size());
-      try (OutputStream output = exchange.getResponseBody()) {
-        output.write(bytes.toArray());
-      }
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
-    } finally {
-      exchange.close();
-    }
+  private boolean matches(Matcher1<HttpRequest> matcher) {
+    return matched.history().anyMatch(matcher::match);
   }
 
   public abstract static class BuilderK<F extends Witness, T extends com.github.tonivade.zeromock.server.HttpServer> {
@@ -247,19 +331,106 @@ public class MockHttpServerK<F extends Witness> implements com.github.tonivade.z
       return this;
     }
 
+    public BuilderK<F, T> backend(Backend backend) {
+      builder.backend(backend);
+      return this;
+    }
+
+    public BuilderK<F, T> acceptors(int acceptors) {
+      builder.acceptors(acceptors);
+      return this;
+    }
+
+    public BuilderK<F, T> idleTimeout(Duration idleTimeout) {
+      builder.idleTimeout(idleTimeout);
+      return this;
+    }
+
+    public BuilderK<F, T> maxRequestSize(int maxRequestSize) {
+      builder.maxRequestSize(maxRequestSize);
+      return this;
+    }
+
+    public BuilderK<F, T> executor(ExecutorStrategy executor) {
+      builder.executor(executor);
+      return this;
+    }
+
+    public BuilderK<F, T> maxInFlight(int maxInFlight) {
+      builder.maxInFlight(maxInFlight);
+      return this;
+    }
+
+    public BuilderK<F, T> maxQueued(int maxQueued) {
+      builder.maxQueued(maxQueued);
+      return this;
+    }
+
+    public BuilderK<F, T> journalCapacity(int journalCapacity) {
+      builder.journalCapacity(journalCapacity);
+      return this;
+    }
+
+    public BuilderK<F, T> journalMaxBytes(long journalMaxBytes) {
+      builder.journalMaxBytes(journalMaxBytes);
+      return this;
+    }
+
+    public BuilderK<F, T> journalMaxBodySize(int journalMaxBodySize) {
+      builder.journalMaxBodySize(journalMaxBodySize);
+      return this;
+    }
+
+    public BuilderK<F, T> journalCompressAbove(int journalCompressAbove) {
+      builder.journalCompressAbove(journalCompressAbove);
+      return this;
+    }
+
+    public BuilderK<F, T> journalDirectory(Path journalDirectory) {
+      builder.journalDirectory(journalDirectory);
+      return this;
+    }
+
+    public BuilderK<F, T> journalSegmentSize(int journalSegmentSize) {
+      builder.journalSegmentSize(journalSegmentSize);
+      return this;
+    }
+
     public MockHttpServerK<F> buildK() {
-      return new MockHttpServerK<>(builder.build(), monad, interpreter);
+      return new MockHttpServerK<>(builder.transport(), monad, interpreter,
+          builder.journal("matched"), builder.journal("unmatched"));
     }
 
     public abstract T build();
   }
 
+  public enum Backend {
+    JDK, NIO
+  }
+
+  public enum ExecutorStrategy {
+    FIXED, WORK_STEALING, VIRTUAL
+  }
+
   public static final class Builder {
 
     private String host = "localhost";
     private int port = 8080;
     private int threads = Runtime.getRuntime().availableProcessors();
     private int backlog = 0;
+    private Backend backend = Backend.JDK;
+    private int acceptors = 1;
+    private Duration idleTimeout = IDLE_TIMEOUT;
+    private int maxRequestSize = MAX_REQUEST_SIZE;
+    private ExecutorStrategy executor = ExecutorStrategy.FIXED;
+    private int maxInFlight = Integer.MAX_VALUE;
+    private int maxQueued = Integer.MAX_VALUE;
+    private int journalCapacity = JOURNAL_CAPACITY;
+    private long journalMaxBytes = Long.MAX_VALUE;
+    private int journalMaxBodySize = Integer.MAX_VALUE;
+    private int journalCompressAbove = Integer.MAX_VALUE;
+    private Path journalDirectory;
+    private int journalSegmentSize = JOURNAL_SEGMENT_SIZE;
 
     public Builder host(String host) {
       this.host = requireNonNull(host);
@@ -281,32 +452,181 @@ public class MockHttpServerK<F extends Witness> implements com.github.tonivade.z
       return this;
     }
 
+    public Builder backend(Backend backend) {
+      this.backend = requireNonNull(backend);
+      return this;
+    }
+
+    // independent accept loops bound to the same port, only supported by the nio backend
+    public Builder acceptors(int acceptors) {
+      if (acceptors < 1) {
+        throw new IllegalArgumentException("invalid number of acceptors: " + acceptors);
+      }
+      this.acceptors = acceptors;
+      return this;
+    }
+
+    // keep alive connections without a request in progress are closed after this time, only used by the nio backend
+    public Builder idleTimeout(Duration idleTimeout) {
+      if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+        throw new IllegalArgumentException("invalid idle timeout: " + idleTimeout);
+      }
+      this.idleTimeout = idleTimeout;
+      return this;
+    }
+
+    // bodies larger than this are answered with 413 payload too large, only used by the nio backend
+    public Builder maxRequestSize(int maxRequestSize) {
+      if (maxRequestSize < 0) {
+        throw new IllegalArgumentException("invalid max request size: " + maxRequestSize);
+      }
+      this.maxRequestSize = maxRequestSize;
+      return this;
+    }
+
+    public Builder executor(ExecutorStrategy executor) {
+      this.executor = requireNonNull(executor);
+      return this;
+    }
+
+    // running and waiting requests, when both are full new requests are answered right away with 503 service unavailable,
+    // the running ones are never more than the threads
+    public Builder maxInFlight(int maxInFlight) {
+      if (maxInFlight < 1) {
+        throw new IllegalArgumentException("invalid max in flight: " + maxInFlight);
+      }
+      this.maxInFlight = maxInFlight;
+      return this;
+    }
+
+    public Builder maxQueued(int maxQueued) {
+      if (maxQueued < 0) {
+        throw new IllegalArgumentException("invalid max queued: " + maxQueued);
+      }
+      this.maxQueued = maxQueued;
+      return this;
+    }
+
+    // matched and unmatched requests kept for verification, the oldest ones are discarded
+    public Builder journalCapacity(int journalCapacity) {
+      if (journalCapacity < 1) {
+        throw new IllegalArgumentException("invalid journal capacity: " + journalCapacity);
+      }
+      this.journalCapacity = journalCapacity;
+      return this;
+    }
+
+    // bytes used by the bodies of each journal, the bodies of the oldest requests are dropped first
+    public Builder journalMaxBytes(long journalMaxBytes) {
+      if (journalMaxBytes < 0) {
+        throw new IllegalArgumentException("invalid journal max bytes: " + journalMaxBytes);
+      }
+      this.journalMaxBytes = journalMaxBytes;
+      return this;
+    }
+
+    // bodies bigger than this are truncated in the journal, the handlers always get the full body
+    public Builder journalMaxBodySize(int journalMaxBodySize) {
+      if (journalMaxBodySize < 0) {
+        throw new IllegalArgumentException("invalid journal max body size: " + journalMaxBodySize);
+      }
+      this.journalMaxBodySize = journalMaxBodySize;
+      return this;
+    }
+
+    // bodies bigger than this are kept deflated in the journal
+    public Builder journalCompressAbove(int journalCompressAbove) {
+      if (journalCompressAbove < 0) {
+        throw new IllegalArgumentException("invalid journal compression threshold: " + journalCompressAbove);
+      }
+      this.journalCompressAbove = journalCompressAbove;
+      return this;
+    }
+
+    // every request is also written to memory mapped segment files in this directory, see JournalReader,
+    // then every verify and await reads all the requests since the last reset from the files, so they get
+    // slower as the journal grows
+    public Builder journalDirectory(Path journalDirectory) {
+      this.journalDirectory = requireNonNull(journalDirectory);
+      return this;
+    }
+
+    public Builder journalSegmentSize(int journalSegmentSize) {
+      if (journalSegmentSize < 1) {
+        throw new IllegalArgumentException("invalid journal segment size: " + journalSegmentSize);
+      }
+      this.journalSegmentSize = journalSegmentSize;
+      return this;
+    }
+
     public HttpServer build() {
+      if (backend != Backend.JDK) {
+        throw new IllegalStateException("only the jdk backend can be built as a com.sun.net.httpserver.HttpServer");
+      }
       try {
         HttpServer server = HttpServer.create(new InetSocketAddress(host, port), backlog);
-        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.setExecutor(executor(shedder()));
         return server;
       } catch (IOException e) {
         throw new UncheckedIOException("unable to create server at " + host + ":" + port, e);
       }
     }
-  }
 
-  private static final class LimitedSizeMap<K, V> extends LinkedHashMap<K, V> {
+    private ServerTransport transport() {
+      if (backend == Backend.NIO) {
+        int loops = Runtime.getRuntime().availableProcessors();
+        return new NioTransport(new InetSocketAddress(host, port), backlog, loops, acceptors, idleTimeout,
+            maxRequestSize, executor(Runnable::run));
+      }
+      if (acceptors > 1) {
+        throw new IllegalStateException("multiple acceptors require the nio backend");
+      }
+      return new JdkTransport(build());
+    }
+
+    private RequestJournal journal(String name) {
+      DiskJournal disk = journalDirectory != null ? new DiskJournal(journalDirectory.resolve(name), journalSegmentSize) : null;
+      return new RequestJournal(journalCapacity, new BodyStore(journalMaxBytes, journalMaxBodySize, journalCompressAbove), disk);
+    }
 
-    private static final long serialVersionUID = 1L;
+    private ServerExecutor executor(Executor shedder) {
+      return new ServerExecutor(executorService(), maxRunning(), maxQueued, shedder);
+    }
+
+    // never more than the threads of the pool, so the admitted requests only wait in the queue bounded by maxQueued
+    private int maxRunning() {
+      return executor == ExecutorStrategy.VIRTUAL ? maxInFlight : Math.min(maxInFlight, threads);
+    }
 
-    private final int maxSize;
+    // the nio backend answers the shed requests from the event loop without blocking, but the jdk server
+    // reads the request inside the task, so they are answered in their own threads and not in the dispatcher
+    private static ExecutorService shedder() {
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(SHED_THREADS, SHED_THREADS, 1, TimeUnit.MINUTES,
+          new LinkedBlockingQueue<>());
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
 
-    private LimitedSizeMap(int maxSize) {
-      super(maxSize);
-      this.maxSize = maxSize;
+    private ExecutorService executorService() {
+      switch (executor) {
+        case WORK_STEALING:
+          return Executors.newWorkStealingPool(threads);
+        case VIRTUAL:
+          return virtualThreads();
+        default:
+          return Executors.newFixedThreadPool(threads);
+      }
     }
 
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-      return size() > maxSize;
+    // looked up by reflection so the project still builds with java 8
+    private static ExecutorService virtualThreads() {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (NoSuchMethodException e) {
+        throw new UnsupportedOperationException("virtual threads require java 21", e);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("unable to create virtual threads executor", e);
+      }
     }
   }
 }
-
@@ -0,0 +1,826 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+import static java.util.Objects.requireNonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.zeromock.api.Bytes;
+import com.github.tonivade.zeromock.api.FileStream;
+import com.github.tonivade.zeromock.api.FrozenResponse;
+import com.github.tonivade.zeromock.api.HttpHeaders;
+import com.github.tonivade.zeromock.api.HttpMethod;
+import com.github.tonivade.zeromock.api.HttpParams;
+import com.github.tonivade.zeromock.api.HttpPath;
+import com.github.tonivade.zeromock.api.HttpRequest;
+import com.github.tonivade.zeromock.api.HttpResponse;
+import com.github.tonivade.zeromock.api.HttpStatus;
+import com.github.tonivade.zeromock.api.MappedStream;
+import com.github.tonivade.zeromock.api.ResponseStream;
+import com.github.tonivade.zeromock.api.Responses;
+
+final class NioConnection {
+
+  private static final Logger LOG = Logger.getLogger(NioConnection.class.getName());
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int MAX_HEADER_SIZE = 65536;
+  private static final int MAX_PRESIZE = 1024 * 1024;
+  private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+  private static final long POLL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static final byte[] HEADER_END = { '\r', '\n', '\r', '\n' };
+  private static final byte[] CRLF = { '\r', '\n' };
+  private static final byte[] CONNECTION_CLOSE = "Connection: close\r\n".getBytes(ISO_8859_1);
+  private static final byte[] CONNECTION_KEEP_ALIVE = "Connection: keep-alive\r\n".getBytes(ISO_8859_1);
+  private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+  private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(ISO_8859_1);
+
+  private static final String HTTP_1_0 = "HTTP/1.0";
+  private static final String CONTENT_LENGTH = "Content-length";
+  private static final String TRANSFER_ENCODING = "Transfer-encoding";
+  private static final String CONNECTION = "Connection";
+  private static final String EXPECT = "Expect";
+  private static final String DATE = "Date";
+
+  private final SocketChannel channel;
+  private final Executor loop;
+  private final Executor worker;
+  private final BiConsumer<NioConnection, HttpRequest> handler;
+  private final int maxRequestSize;
+
+  private SelectionKey key;
+  private byte[] input = new byte[BUFFER_SIZE];
+  private int length;
+  // where the search of the end of the headers goes on after the next read
+  private int scanned;
+  private RequestHead head;
+  private Pending output;
+  private ByteBuffer interim;
+  private long lastActivity = System.currentTimeMillis();
+  private boolean processing;
+  private boolean keepAlive;
+  private boolean http11;
+  private boolean skipBody;
+  private boolean closed;
+
+  NioConnection(SocketChannel channel, Executor loop, Executor worker,
+                BiConsumer<NioConnection, HttpRequest> handler, int maxRequestSize) {
+    this.channel = requireNonNull(channel);
+    this.loop = requireNonNull(loop);
+    this.worker = requireNonNull(worker);
+    this.handler = requireNonNull(handler);
+    this.maxRequestSize = maxRequestSize;
+  }
+
+  void register(Selector selector) throws IOException {
+    key = channel.register(selector, SelectionKey.OP_READ, this);
+  }
+
+  void read() throws IOException {
+    lastActivity = System.currentTimeMillis();
+    if (length == input.length) {
+      // a full buffer that can not grow would be read again and again without getting anything
+      if (input.length == MAX_BUFFER_SIZE) {
+        fail(HttpStatus.PAYLOAD_TOO_LARGE);
+        return;
+      }
+      input = Arrays.copyOf(input, (int) Math.min(input.length * 2L, MAX_BUFFER_SIZE));
+    }
+    int read = channel.read(ByteBuffer.wrap(input, length, input.length - length));
+    if (read < 0) {
+      close();
+      return;
+    }
+    length += read;
+    parse();
+  }
+
+  void write() throws IOException {
+    lastActivity = System.currentTimeMillis();
+    if (interim != null && !writeInterim()) {
+      return;
+    }
+    if (output == null) {
+      return;
+    }
+    if (!output.writeTo(channel)) {
+      // the socket is not watched while there is nothing ready to write
+      key.interestOps(output.isWaiting() ? 0 : SelectionKey.OP_WRITE);
+      return;
+    }
+    output.close();
+    output = null;
+    if (!keepAlive) {
+      close();
+      return;
+    }
+    processing = false;
+    key.interestOps(SelectionKey.OP_READ);
+    // the client may have sent the next request already
+    parse();
+  }
+
+  // true when waiting for the next request, or for the rest of one, since before the deadline
+  boolean isIdle(long deadline) {
+    return !processing && output == null && interim == null && lastActivity < deadline;
+  }
+
+  void reply(HttpResponse response) {
+    loop.execute(() -> send(response));
+  }
+
+  void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (output != null) {
+      output.close();
+      output = null;
+    }
+    if (key != null) {
+      key.cancel();
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "error closing connection", e);
+    }
+  }
+
+  private void parse() throws IOException {
+    if (processing || closed) {
+      return;
+    }
+    if (head == null) {
+      int headerEnd = indexOf(HEADER_END, scanned);
+      if (headerEnd < 0) {
+        // only the last bytes may be the start of the end of the headers
+        scanned = Math.max(0, length - HEADER_END.length + 1);
+        if (length > MAX_HEADER_SIZE) {
+          fail(HttpStatus.BAD_REQUEST);
+        }
+        return;
+      }
+      scanned = 0;
+      try {
+        head = RequestHead.parse(new String(input, 0, headerEnd, ISO_8859_1), headerEnd + HEADER_END.length);
+      } catch (IllegalArgumentException e) {
+        LOG.log(Level.FINE, "invalid request", e);
+        fail(HttpStatus.BAD_REQUEST);
+        return;
+      }
+      // rejected before the client is told to continue
+      if (head.contentLength > maxRequestSize) {
+        fail(HttpStatus.PAYLOAD_TOO_LARGE);
+        return;
+      }
+    }
+    byte[] body;
+    try {
+      body = head.chunked ? chunked() : fixed();
+    } catch (IllegalStateException e) {
+      LOG.log(Level.FINE, "request too large", e);
+      fail(HttpStatus.PAYLOAD_TOO_LARGE);
+      return;
+    } catch (IllegalArgumentException e) {
+      LOG.log(Level.FINE, "invalid chunk", e);
+      fail(HttpStatus.BAD_REQUEST);
+      return;
+    }
+    if (body == null) {
+      if (head.expectContinue) {
+        head.expectContinue = false;
+        interim = ByteBuffer.wrap(CONTINUE);
+        writeInterim();
+      }
+      return;
+    }
+    RequestHead current = head;
+    head = null;
+    processing = true;
+    keepAlive = current.keepAlive;
+    http11 = current.http11;
+    key.interestOps(0);
+    HttpMethod method = current.method();
+    if (method == null) {
+      fail(HttpStatus.NOT_IMPLEMENTED);
+      return;
+    }
+    skipBody = method == HttpMethod.HEAD;
+    HttpRequest request;
+    try {
+      request = current.toRequest(method, body);
+    } catch (IllegalArgumentException e) {
+      LOG.log(Level.FINE, "invalid request", e);
+      fail(HttpStatus.BAD_REQUEST);
+      return;
+    }
+    handler.accept(this, request);
+  }
+
+  // the buffer is not sized for the whole content length up front, it grows as the body is received
+  private byte[] fixed() {
+    int end = head.headerSize + head.contentLength;
+    if (length < end) {
+      int presize = head.headerSize + Math.min(head.contentLength, MAX_PRESIZE);
+      if (input.length < presize) {
+        input = Arrays.copyOf(input, presize);
+      }
+      return null;
+    }
+    byte[] body = Arrays.copyOfRange(input, head.headerSize, end);
+    consume(end);
+    return body;
+  }
+
+  // the chunks received are kept in the head, each read only parses the new data, and the data already
+  // parsed is dropped from the buffer, so it only keeps the chunk being received
+  private byte[] chunked() {
+    if (head.position > 0) {
+      consume(head.position);
+      head.position = 0;
+    }
+    while (true) {
+      int lineEnd = indexOf(CRLF, head.position);
+      if (lineEnd < 0) {
+        if (length - head.position > MAX_HEADER_SIZE) {
+          throw new IllegalArgumentException("chunk size line too long");
+        }
+        return null;
+      }
+      String line = new String(input, head.position, lineEnd - head.position, ISO_8859_1);
+      int extension = line.indexOf(';');
+      int size = Integer.parseInt((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+      if (size < 0) {
+        throw new IllegalArgumentException("invalid chunk size: " + line);
+      }
+      if ((long) head.chunks.size() + size > maxRequestSize) {
+        throw new IllegalStateException("content too large: " + (head.chunks.size() + size));
+      }
+      int position = lineEnd + CRLF.length;
+      if (size == 0) {
+        int trailerEnd = startsWith(CRLF, position) ? position : indexOf(HEADER_END, position) + CRLF.length;
+        if (trailerEnd < position || trailerEnd + CRLF.length > length) {
+          if (length - position > MAX_HEADER_SIZE) {
+            throw new IllegalArgumentException("trailer too long");
+          }
+          return null;
+        }
+        consume(trailerEnd + CRLF.length);
+        return head.chunks.toByteArray();
+      }
+      if ((long) position + size + CRLF.length > length) {
+        return null;
+      }
+      head.chunks.write(input, position, size);
+      head.position = position + size + CRLF.length;
+    }
+  }
+
+  private void send(HttpResponse response) {
+    if (closed) {
+      return;
+    }
+    try {
+      Option<ResponseStream> stream = response.stream();
+      Option<FrozenResponse> frozen = response.frozen();
+      if (stream.isPresent()) {
+        output = streamed(response, stream.get());
+      } else if (frozen.isPresent()) {
+        output = frozen(frozen.get(), hasDate(response));
+      } else {
+        output = buffered(response);
+      }
+      write();
+    } catch (IOException | RuntimeException e) {
+      LOG.log(Level.FINE, "error writing response", e);
+      close();
+    }
+  }
+
+  // the encoded response is written as it is, together with the headers that depend on the connection
+  private Pending frozen(FrozenResponse response, boolean hasDate) {
+    ByteBuffer date = hasDate ? ByteBuffer.allocate(0) : ByteBuffer.wrap(ResponseHead.dateBytes());
+    ByteBuffer end = skipBody ? ByteBuffer.wrap(CRLF) : response.tail();
+    if (keepAlive && http11) {
+      return new Buffers(response.head(), date, end);
+    }
+    ByteBuffer connection = ByteBuffer.wrap(keepAlive ? CONNECTION_KEEP_ALIVE : CONNECTION_CLOSE);
+    return new Buffers(response.head(), date, connection, end);
+  }
+
+  private Pending buffered(HttpResponse response) {
+    boolean body = hasBody(response);
+    ByteBuffer header = head(response, body ? response.body().size() : -1, false);
+    if (!body || skipBody) {
+      return new Buffers(header);
+    }
+    return new Buffers(header, response.body().getBuffer());
+  }
+
+  // without a known length the body is sent chunked, or until the connection is closed for http/1.0 clients
+  private Pending streamed(HttpResponse response, ResponseStream stream) throws IOException {
+    if (!hasBody(response)) {
+      return new Buffers(head(response, -1, false));
+    }
+    long contentLength = stream.length();
+    boolean chunked = contentLength < 0 && http11;
+    if (contentLength < 0 && !http11) {
+      keepAlive = false;
+    }
+    ByteBuffer head = head(response, contentLength, chunked);
+    if (skipBody) {
+      return new Buffers(head);
+    }
+    try {
+      if (stream instanceof MappedStream) {
+        return new Buffers(head, ((MappedStream) stream).buffer());
+      }
+      if (stream instanceof FileStream) {
+        FileStream file = (FileStream) stream;
+        return new Transferred(head, file.openChannel(), file.position(), file.length());
+      }
+      return new Streamed(head, stream, chunked);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "error opening response stream", e);
+      return buffered(Responses.error(e));
+    }
+  }
+
+  private ByteBuffer head(HttpResponse response, long contentLength, boolean chunked) {
+    return ByteBuffer.wrap(ResponseHead.of(response, contentLength, chunked, keepAlive, http11).getBytes(ISO_8859_1));
+  }
+
+  // the rest of an interim response is written before anything else
+  private boolean writeInterim() throws IOException {
+    channel.write(interim);
+    if (interim.hasRemaining()) {
+      key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+      return false;
+    }
+    interim = null;
+    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    return true;
+  }
+
+  private void fail(HttpStatus status) {
+    processing = true;
+    keepAlive = false;
+    skipBody = false;
+    key.interestOps(0);
+    send(new HttpResponse(status, Bytes.empty()));
+  }
+
+  private boolean hasBody(HttpResponse response) {
+    return response.status().hasBody();
+  }
+
+  // a date set by the mapping is sent instead of the current one
+  private static boolean hasDate(HttpResponse response) {
+    boolean[] found = { false };
+    response.headers().forEach((key, value) -> found[0] |= DATE.equalsIgnoreCase(key));
+    return found[0];
+  }
+
+  private void consume(int size) {
+    System.arraycopy(input, size, input, 0, length - size);
+    length -= size;
+    scanned = 0;
+  }
+
+  private int indexOf(byte[] pattern, int from) {
+    for (int i = from; i <= length - pattern.length; i++) {
+      if (startsWith(pattern, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean startsWith(byte[] pattern, int position) {
+    if (position + pattern.length > length) {
+      return false;
+    }
+    for (int i = 0; i < pattern.length; i++) {
+      if (input[position + i] != pattern[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // header names are normalized the same way the jdk server does
+  static String normalize(String name) {
+    if (name.isEmpty()) {
+      return name;
+    }
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1).toLowerCase();
+  }
+
+  private interface Pending {
+
+    // true when everything was written
+    boolean writeTo(SocketChannel channel) throws IOException;
+
+    // true when the rest of the data is still being read
+    default boolean isWaiting() {
+      return false;
+    }
+
+    default void close() { }
+  }
+
+  private static final class Buffers implements Pending {
+
+    private final ByteBuffer[] buffers;
+
+    private Buffers(ByteBuffer... buffers) {
+      this.buffers = buffers;
+    }
+
+    @Override
+    public boolean writeTo(SocketChannel channel) throws IOException {
+      channel.write(buffers);
+      return !hasRemaining(buffers);
+    }
+  }
+
+  // the stream is opened and read in a worker thread one buffer at a time, only when the previous one was written,
+  // the event loop just writes the buffers handed back to it
+  private final class Streamed implements Pending {
+
+    private final ResponseStream stream;
+    private final boolean chunked;
+    private final ByteBuffer data = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private ByteBuffer head;
+    private ByteBuffer[] current = new ByteBuffer[0];
+    private ReadableByteChannel source;
+    private boolean reading;
+    private boolean finished;
+
+    private volatile boolean cancelled;
+
+    private Streamed(ByteBuffer head, ResponseStream stream, boolean chunked) {
+      this.head = requireNonNull(head);
+      this.stream = requireNonNull(stream);
+      this.chunked = chunked;
+    }
+
+    @Override
+    public boolean writeTo(SocketChannel channel) throws IOException {
+      if (hasRemaining(current)) {
+        channel.write(current);
+        if (hasRemaining(current)) {
+          return false;
+        }
+      }
+      if (finished) {
+        return true;
+      }
+      if (!reading) {
+        reading = true;
+        worker.execute(this::fill);
+      }
+      return false;
+    }
+
+    @Override
+    public boolean isWaiting() {
+      return reading;
+    }
+
+    // a read in progress closes the source when it is handed back
+    @Override
+    public void close() {
+      cancelled = true;
+      if (!reading) {
+        closeSource();
+      }
+    }
+
+    // runs in a worker thread, a source with nothing to read yet is polled again without waking up the event loop
+    private void fill() {
+      try {
+        if (source == null) {
+          source = stream.open();
+        }
+        data.clear();
+        int read = source.read(data);
+        while (read == 0 && !cancelled) {
+          LockSupport.parkNanos(POLL_INTERVAL);
+          read = source.read(data);
+        }
+        data.flip();
+        int result = read;
+        loop.execute(() -> filled(result, null));
+      } catch (IOException | RuntimeException e) {
+        loop.execute(() -> filled(0, e));
+      }
+    }
+
+    // runs in the event loop, the head is sent together with the first buffer,
+    // so a stream that can not be opened is still answered with an error
+    private void filled(int read, Exception error) {
+      reading = false;
+      if (cancelled) {
+        closeSource();
+        return;
+      }
+      if (error != null && source != null) {
+        LOG.log(Level.FINE, "error reading response stream", error);
+        NioConnection.this.close();
+        return;
+      }
+      try {
+        if (error == null) {
+          current = frame(read);
+        } else {
+          LOG.log(Level.WARNING, "error opening response stream", error);
+          output = buffered(Responses.error(error));
+        }
+        write();
+      } catch (IOException | RuntimeException e) {
+        LOG.log(Level.FINE, "error writing response", e);
+        NioConnection.this.close();
+      }
+    }
+
+    private ByteBuffer[] frame(int read) {
+      List<ByteBuffer> buffers = new ArrayList<>(4);
+      if (head != null) {
+        buffers.add(head);
+        head = null;
+      }
+      if (read < 0) {
+        finished = true;
+        if (chunked) {
+          buffers.add(ByteBuffer.wrap(LAST_CHUNK));
+        }
+      } else if (chunked && read > 0) {
+        buffers.add(ByteBuffer.wrap((Integer.toHexString(read) + "\r\n").getBytes(ISO_8859_1)));
+        buffers.add(data);
+        buffers.add(ByteBuffer.wrap(CRLF));
+      } else {
+        buffers.add(data);
+      }
+      return buffers.toArray(new ByteBuffer[0]);
+    }
+
+    private void closeSource() {
+      if (source == null) {
+        return;
+      }
+      try {
+        source.close();
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "error closing response stream", e);
+      }
+    }
+  }
+
+  // the file is sent from the page cache to the socket, without copying it into the heap
+  private static final class Transferred implements Pending {
+
+    private final ByteBuffer head;
+    private final FileChannel file;
+    private final long end;
+
+    private long position;
+
+    private Transferred(ByteBuffer head, FileChannel file, long position, long count) {
+      this.head = requireNonNull(head);
+      this.file = requireNonNull(file);
+      this.position = position;
+      this.end = position + count;
+    }
+
+    @Override
+    public boolean writeTo(SocketChannel channel) throws IOException {
+      if (head.hasRemaining()) {
+        channel.write(head);
+        if (head.hasRemaining()) {
+          return false;
+        }
+      }
+      while (position < end) {
+        long written = file.transferTo(position, end - position, channel);
+        if (written == 0) {
+          if (position >= file.size()) {
+            throw new IOException("file truncated");
+          }
+          return false;
+        }
+        position += written;
+      }
+      return true;
+    }
+
+    @Override
+    public void close() {
+      try {
+        file.close();
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "error closing file", e);
+      }
+    }
+  }
+
+  private static boolean hasRemaining(ByteBuffer[] buffers) {
+    for (ByteBuffer buffer : buffers) {
+      if (buffer.hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class RequestHead {
+
+    private final String method;
+    private final String target;
+    private final Map<String, List<String>> headers;
+    private final int headerSize;
+    private final int contentLength;
+    private final boolean chunked;
+    private final boolean keepAlive;
+    private final boolean http11;
+    private final ByteArrayOutputStream chunks;
+    private boolean expectContinue;
+    private int position;
+
+    private RequestHead(String method, String target, String version,
+                        Map<String, List<String>> headers, int headerSize) {
+      this.method = method;
+      this.target = target;
+      this.headers = headers;
+      this.headerSize = headerSize;
+      this.chunked = first(TRANSFER_ENCODING).toLowerCase().contains("chunked");
+      this.contentLength = chunked ? 0 : contentLength(first(CONTENT_LENGTH));
+      if (contentLength > MAX_BUFFER_SIZE - headerSize) {
+        throw new IllegalArgumentException("content too large: " + contentLength);
+      }
+      String connection = first(CONNECTION).toLowerCase();
+      this.http11 = !HTTP_1_0.equals(version);
+      this.keepAlive = http11 ? !connection.contains("close") : connection.contains("keep-alive");
+      this.expectContinue = first(EXPECT).equalsIgnoreCase("100-continue");
+      this.chunks = chunked ? new ByteArrayOutputStream() : null;
+      this.position = headerSize;
+    }
+
+    private HttpMethod method() {
+      for (HttpMethod value : HttpMethod.values()) {
+        if (value.name().equals(method)) {
+          return value;
+        }
+      }
+      return null;
+    }
+
+    private HttpRequest toRequest(HttpMethod method, byte[] body) {
+      URI uri;
+      try {
+        uri = new URI(target);
+      } catch (URISyntaxException e) {
+        throw new IllegalArgumentException("invalid uri: " + target, e);
+      }
+      return new HttpRequest(method,
+          HttpPath.from(uri.getPath()), Bytes.fromArray(body), HttpHeaders.from(headers), new HttpParams(uri.getQuery()));
+    }
+
+    private String first(String name) {
+      List<String> values = headers.get(name);
+      return values == null || values.isEmpty() ? "" : values.get(0);
+    }
+
+    private static int contentLength(String value) {
+      if (value.isEmpty()) {
+        return 0;
+      }
+      int contentLength = Integer.parseInt(value.trim());
+      if (contentLength < 0) {
+        throw new IllegalArgumentException("invalid content length: " + value);
+      }
+      return contentLength;
+    }
+
+    private static RequestHead parse(String text, int headerSize) {
+      String[] lines = text.split("\r\n");
+      String[] requestLine = lines[0].split(" ");
+      if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/")) {
+        throw new IllegalArgumentException("invalid request line: " + lines[0]);
+      }
+      Map<String, List<String>> headers = new LinkedHashMap<>();
+      String last = null;
+      for (int i = 1; i < lines.length; i++) {
+        String line = lines[i];
+        if (!line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t') && last != null) {
+          List<String> values = headers.get(last);
+          values.set(values.size() - 1, values.get(values.size() - 1) + " " + line.trim());
+          continue;
+        }
+        int colon = line.indexOf(':');
+        if (colon <= 0) {
+          throw new IllegalArgumentException("invalid header: " + line);
+        }
+        last = normalize(line.substring(0, colon));
+        headers.computeIfAbsent(last, k -> new ArrayList<>()).add(line.substring(colon + 1).trim());
+      }
+      return new RequestHead(requestLine[0], requestLine[1], requestLine[2], headers, headerSize);
+    }
+  }
+
+  private static final class ResponseHead {
+
+    private static volatile DateLine cachedDate = new DateLine(0);
+
+    // http/1.0 clients only keep the connection open when they are told to
+    private static String of(HttpResponse response, long contentLength, boolean chunked,
+                             boolean keepAlive, boolean http11) {
+      StringBuilder head = new StringBuilder(256);
+      HttpStatus status = response.status();
+      head.append("HTTP/1.1 ").append(status.code()).append(' ').append(status.reason()).append("\r\n");
+      if (!hasDate(response)) {
+        head.append(date());
+      }
+      response.headers().forEach((key, value) -> {
+        if (!CONTENT_LENGTH.equalsIgnoreCase(key) && !CONNECTION.equalsIgnoreCase(key)
+            && !TRANSFER_ENCODING.equalsIgnoreCase(key)) {
+          head.append(key).append(": ").append(value).append("\r\n");
+        }
+      });
+      if (chunked) {
+        head.append("Transfer-Encoding: chunked\r\n");
+      } else if (contentLength >= 0) {
+        head.append("Content-Length: ").append(contentLength).append("\r\n");
+      }
+      if (!keepAlive) {
+        head.append("Connection: close\r\n");
+      } else if (!http11) {
+        head.append("Connection: keep-alive\r\n");
+      }
+      return head.append("\r\n").toString();
+    }
+
+    private static String date() {
+      return currentDate().line;
+    }
+
+    private static byte[] dateBytes() {
+      return currentDate().bytes;
+    }
+
+    // the date header only changes once per second
+    private static DateLine currentDate() {
+      long now = System.currentTimeMillis() / 1000;
+      DateLine current = cachedDate;
+      if (current.second != now) {
+        current = new DateLine(now);
+        cachedDate = current;
+      }
+      return current;
+    }
+  }
+
+  private static final class DateLine {
+
+    private final long second;
+    private final String line;
+    private final byte[] bytes;
+
+    private DateLine(long second) {
+      this.second = second;
+      this.line = "Date: " + RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneOffset.UTC)) + "\r\n";
+      this.bytes = line.getBytes(ISO_8859_1);
+    }
+  }
+}
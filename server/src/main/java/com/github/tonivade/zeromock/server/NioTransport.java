@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.github.tonivade.zeromock.api.HttpRequest;
+import com.github.tonivade.zeromock.api.Responses;
+
+final class NioTransport implements ServerTransport {
+
+  private static final Logger LOG = Logger.getLogger(NioTransport.class.getName());
+
+  private static final String SO_REUSEPORT = "SO_REUSEPORT";
+  private static final long MAX_CHECK_INTERVAL = 1000;
+
+  private final ServerSocketChannel[] channels;
+  private final ServerExecutor executor;
+  private final EventLoop[] loops;
+  private final AtomicLongArray accepted;
+  private final long idleTimeout;
+  private final int maxRequestSize;
+  private final AtomicInteger next = new AtomicInteger();
+
+  private volatile RequestDispatcher dispatcher;
+
+  NioTransport(InetSocketAddress address, int backlog, int loops, int acceptors, Duration idleTimeout,
+               int maxRequestSize, ServerExecutor executor) {
+    if (loops < 1) {
+      throw new IllegalArgumentException("invalid number of loops: " + loops);
+    }
+    if (acceptors < 1) {
+      throw new IllegalArgumentException("invalid number of acceptors: " + acceptors);
+    }
+    this.idleTimeout = idleTimeout.toMillis();
+    this.maxRequestSize = maxRequestSize;
+    this.executor = requireNonNull(executor);
+    this.channels = open(address, backlog, acceptors);
+    this.accepted = new AtomicLongArray(acceptors);
+    this.loops = new EventLoop[Math.max(loops, acceptors)];
+    for (int i = 0; i < this.loops.length; i++) {
+      this.loops[i] = new EventLoop("zeromock-nio-" + i);
+    }
+  }
+
+  @Override
+  public void bind(RequestDispatcher dispatcher) {
+    this.dispatcher = requireNonNull(dispatcher);
+  }
+
+  @Override
+  public InetSocketAddress getAddress() {
+    try {
+      return (InetSocketAddress) channels[0].getLocalAddress();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void start() {
+    try {
+      // without SO_REUSEPORT all the acceptors share the same channel
+      for (int i = 0; i < channels.length; i++) {
+        channels[i].register(loops[i].selector, SelectionKey.OP_ACCEPT, i);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("unable to start server", e);
+    }
+    for (EventLoop loop : loops) {
+      loop.thread.start();
+    }
+  }
+
+  @Override
+  public ServerStats stats() {
+    List<Long> connections = new ArrayList<>(accepted.length());
+    for (int i = 0; i < accepted.length(); i++) {
+      connections.add(accepted.get(i));
+    }
+    return executor.stats(unmodifiableList(connections));
+  }
+
+  @Override
+  public void stop() {
+    for (ServerSocketChannel channel : channels) {
+      closeQuietly(channel);
+    }
+    for (EventLoop loop : loops) {
+      loop.shutdown();
+    }
+    executor.shutdown();
+  }
+
+  private void dispatch(NioConnection connection, HttpRequest request) {
+    try {
+      executor.execute(() -> {
+        if (ServerExecutor.isShed()) {
+          connection.reply(Responses.unavailable());
+        } else {
+          dispatcher.dispatch(request, connection::reply);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOG.log(Level.FINE, "request rejected", e);
+      connection.close();
+    }
+  }
+
+  private EventLoop nextLoop() {
+    return loops[Math.abs(next.getAndIncrement() % loops.length)];
+  }
+
+  private static ServerSocketChannel[] open(InetSocketAddress address, int backlog, int acceptors) {
+    ServerSocketChannel[] channels = new ServerSocketChannel[acceptors];
+    channels[0] = open(address, backlog, acceptors > 1);
+    boolean reusePort = acceptors > 1 && reusePort(channels[0]) != null;
+    if (reusePort) {
+      LOG.fine(() -> "binding " + acceptors + " acceptors with " + SO_REUSEPORT);
+    }
+    InetSocketAddress bound = new InetSocketAddress(address.getAddress(), localPort(channels[0]));
+    for (int i = 1; i < acceptors; i++) {
+      channels[i] = reusePort ? open(bound, backlog, true) : channels[0];
+    }
+    return channels;
+  }
+
+  private static ServerSocketChannel open(InetSocketAddress address, int backlog, boolean reusePort) {
+    ServerSocketChannel channel = null;
+    try {
+      channel = ServerSocketChannel.open();
+      channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+      SocketOption<Boolean> option = reusePort ? reusePort(channel) : null;
+      if (option != null) {
+        channel.setOption(option, true);
+      }
+      channel.bind(address, backlog);
+      channel.configureBlocking(false);
+      return channel;
+    } catch (IOException e) {
+      closeQuietly(channel);
+      throw new UncheckedIOException("unable to create server at " + address, e);
+    }
+  }
+
+  private static int localPort(ServerSocketChannel channel) {
+    try {
+      return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // looked up by name, the constant is only available since java 9
+  @SuppressWarnings("unchecked")
+  private static SocketOption<Boolean> reusePort(ServerSocketChannel channel) {
+    for (SocketOption<?> option : channel.supportedOptions()) {
+      if (option.name().equals(SO_REUSEPORT)) {
+        return (SocketOption<Boolean>) option;
+      }
+    }
+    return null;
+  }
+
+  private static void closeQuietly(Channel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "error closing channel", e);
+      }
+    }
+  }
+
+  private final class EventLoop implements Runnable {
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = true;
+
+    private EventLoop(String name) {
+      try {
+        this.selector = Selector.open();
+      } catch (IOException e) {
+        throw new UncheckedIOException("unable to create selector", e);
+      }
+      this.thread = new Thread(this, name);
+    }
+
+    private void execute(Runnable task) {
+      tasks.add(task);
+      selector.wakeup();
+    }
+
+    private void shutdown() {
+      running = false;
+      selector.wakeup();
+    }
+
+    // the selector is woken up from time to time to close the idle connections
+    @Override
+    public void run() {
+      long interval = Math.max(1, Math.min(idleTimeout, MAX_CHECK_INTERVAL));
+      long nextCheck = System.currentTimeMillis() + interval;
+      while (running) {
+        try {
+          selector.select(interval);
+        } catch (IOException e) {
+          LOG.log(Level.SEVERE, "error in event loop", e);
+          break;
+        }
+        runTasks();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          process(key);
+        }
+        long now = System.currentTimeMillis();
+        if (now >= nextCheck) {
+          expire(now - idleTimeout);
+          nextCheck = now + interval;
+        }
+      }
+      for (SelectionKey key : selector.keys()) {
+        closeQuietly(key.channel());
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "error closing selector", e);
+      }
+    }
+
+    private void expire(long deadline) {
+      for (SelectionKey key : selector.keys()) {
+        Object attachment = key.attachment();
+        if (attachment instanceof NioConnection && ((NioConnection) attachment).isIdle(deadline)) {
+          LOG.fine("closing idle connection");
+          ((NioConnection) attachment).close();
+        }
+      }
+    }
+
+    private void runTasks() {
+      for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          LOG.log(Level.WARNING, "error in event loop task", e);
+        }
+      }
+    }
+
+    private void process(SelectionKey key) {
+      if (!key.isValid()) {
+        return;
+      }
+      if (key.isAcceptable()) {
+        accept((ServerSocketChannel) key.channel(), (Integer) key.attachment());
+        return;
+      }
+      NioConnection connection = (NioConnection) key.attachment();
+      try {
+        if (key.isReadable()) {
+          connection.read();
+        }
+        if (key.isValid() && key.isWritable()) {
+          connection.write();
+        }
+      } catch (IOException | RuntimeException e) {
+        LOG.log(Level.FINE, "error processing connection", e);
+        connection.close();
+      }
+    }
+
+    private void accept(ServerSocketChannel server, int acceptor) {
+      try {
+        SocketChannel client = server.accept();
+        if (client == null) {
+          return;
+        }
+        accepted.incrementAndGet(acceptor);
+        client.configureBlocking(false);
+        client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        EventLoop loop = nextLoop();
+        loop.execute(() -> loop.register(client));
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "error accepting connection", e);
+      }
+    }
+
+    private void register(SocketChannel client) {
+      NioConnection connection = new NioConnection(client, this::execute, executor::background,
+          NioTransport.this::dispatch, maxRequestSize);
+      try {
+        connection.register(selector);
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "error registering connection", e);
+        connection.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import java.util.function.Consumer;
+
+import com.github.tonivade.zeromock.api.HttpRequest;
+import com.github.tonivade.zeromock.api.HttpResponse;
+
+@FunctionalInterface
+interface RequestDispatcher {
+
+  void dispatch(HttpRequest request, Consumer<HttpResponse> reply);
+}
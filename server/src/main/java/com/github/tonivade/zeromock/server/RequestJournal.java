@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import com.github.tonivade.purefun.Matcher1;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.zeromock.api.Bytes;
+import com.github.tonivade.zeromock.api.HttpMethod;
+import com.github.tonivade.zeromock.api.HttpPath;
+import com.github.tonivade.zeromock.api.HttpRequest;
+import com.github.tonivade.zeromock.server.BodyStore.Blob;
+
+// ring buffer written by many threads at once, the oldest entries are overwritten when it is full,
+// the bodies are kept apart and dropped from the oldest entries when they use too much memory
+final class RequestJournal {
+
+  private static final Logger LOG = Logger.getLogger(RequestJournal.class.getName());
+
+  private static final int MAX_ROUTES = 1024;
+
+  private final int capacity;
+  private final AtomicReferenceArray<Entry> slots;
+  private final BodyStore store;
+  private final DiskJournal disk;
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+  private final ConcurrentMap<String, Hits> hits = new ConcurrentHashMap<>();
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  private volatile long floor;
+  private volatile boolean saturated;
+
+  RequestJournal(int capacity) {
+    this(capacity, BodyStore.unbounded(), null);
+  }
+
+  // with a disk journal every request is also written to disk, and verifications read all of them from there
+  RequestJournal(int capacity, BodyStore store, DiskJournal disk) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("invalid journal capacity: " + capacity);
+    }
+    this.capacity = capacity;
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.store = requireNonNull(store);
+    this.disk = disk;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  // every writer gets its own sequence number and slot, only identical bodies contend in the store
+  long append(HttpRequest request) {
+    requireNonNull(request);
+    Option<Bytes> body = detach(request);
+    Blob blob = body.isPresent() ? store.store(body.get()) : null;
+    Entry entry = new Entry(Instant.now(), request.withBody(Bytes.empty()), blob, body.isPresent());
+    // the disk journal takes the sequence itself, to write the records in the same order
+    long next = disk != null ? disk.append(sequence, entry.timestamp, request, body) : sequence.getAndIncrement();
+    entry.sequence = next;
+    publish(entry);
+    evict();
+    hit(request);
+    for (Waiter waiter : waiters) {
+      waiter.offer(request);
+    }
+    return next;
+  }
+
+  // registered before looking at the entries, so a request received meanwhile is not missed
+  boolean await(Matcher1<HttpRequest> matcher, Duration timeout) throws InterruptedException {
+    Waiter waiter = new Waiter(requireNonNull(matcher));
+    waiters.add(waiter);
+    try {
+      if (history().anyMatch(matcher::match)) {
+        return true;
+      }
+      return waiter.latch.await(timeout.toNanos(), NANOSECONDS);
+    } finally {
+      waiters.remove(waiter);
+    }
+  }
+
+  // counted apart from the entries, so it is still right after they are overwritten, the path may be a
+  // pattern like /users/:id, then the hits of every path it matches are added up. Once there are too many
+  // different paths it falls back to look at the journal
+  long count(HttpMethod method, HttpPath pattern) {
+    requireNonNull(method);
+    requireNonNull(pattern);
+    if (saturated) {
+      return history().filter(request -> request.method() == method && request.path().match(pattern)).count();
+    }
+    long count = 0;
+    for (Hits counter : hits.values()) {
+      if (counter.method == method && counter.path.match(pattern)) {
+        count += counter.adder.sum();
+      }
+    }
+    return count;
+  }
+
+  // entries in sequence order, skipping the ones still being written or already overwritten
+  List<Entry> snapshot() {
+    long head = sequence.get();
+    long from = Math.max(floor, head - capacity);
+    List<Entry> result = new ArrayList<>((int) (head - from));
+    for (long i = from; i < head; i++) {
+      Entry entry = slots.get(index(i));
+      if (entry != null && entry.sequence == i) {
+        result.add(entry);
+      }
+    }
+    return unmodifiableList(result);
+  }
+
+  List<HttpRequest> requests() {
+    return unmodifiableList(snapshot().stream().map(Entry::request).collect(toList()));
+  }
+
+  // all the requests since the last reset when they are written to disk, otherwise the ones in memory
+  Stream<HttpRequest> history() {
+    return disk != null ? disk.scan().map(JournalRecord::request) : requests().stream();
+  }
+
+  // entries are not removed, they are just hidden from later snapshots
+  void clear() {
+    floor = sequence.get();
+    hits.clear();
+    saturated = false;
+    for (int i = 0; i < capacity; i++) {
+      release(slots.get(i));
+    }
+    if (disk != null) {
+      disk.clear();
+    }
+  }
+
+  void close() {
+    if (disk != null) {
+      disk.close();
+    }
+  }
+
+  // a slow writer may find its slot already taken by a newer entry, then its own entry is dropped,
+  // it would have been overwritten anyway
+  private void publish(Entry entry) {
+    int index = index(entry.sequence);
+    while (true) {
+      Entry previous = slots.get(index);
+      if (previous != null && previous.sequence > entry.sequence) {
+        release(entry);
+        return;
+      }
+      if (slots.compareAndSet(index, previous, entry)) {
+        release(previous);
+        return;
+      }
+    }
+  }
+
+  // bodies of the oldest entries are dropped first, the rest of the request is kept
+  private void evict() {
+    while (store.isFull()) {
+      long head = sequence.get();
+      long current = evicted.get();
+      long oldest = Math.max(current, head - capacity);
+      if (oldest >= head) {
+        return;
+      }
+      if (evicted.compareAndSet(current, oldest + 1)) {
+        Entry entry = slots.get(index(oldest));
+        if (entry != null && entry.sequence == oldest) {
+          release(entry);
+        }
+      }
+    }
+  }
+
+  // one counter per method and path, a new path is not counted once the limit is reached
+  private void hit(HttpRequest request) {
+    String key = route(request.method(), request.path());
+    Hits counter = hits.get(key);
+    if (counter == null) {
+      if (hits.size() >= MAX_ROUTES) {
+        saturated = true;
+        return;
+      }
+      counter = hits.computeIfAbsent(key, k -> new Hits(request.method(), request.path()));
+    }
+    counter.adder.increment();
+  }
+
+  private void release(Entry entry) {
+    Blob blob = entry != null ? entry.body.getAndSet(null) : null;
+    if (blob != null) {
+      store.release(blob);
+    }
+  }
+
+  private int index(long value) {
+    return (int) (value % capacity);
+  }
+
+  // the transports buffer the unread body before answering anyway, so it is done here to keep it,
+  // only a body consumed as a stream, or that failed to be read, is marked as not captured
+  private static Option<Bytes> detach(HttpRequest request) {
+    try {
+      return request.detach().loadedBody();
+    } catch (UncheckedIOException e) {
+      LOG.log(Level.FINE, "unable to read request body", e);
+      return Option.none();
+    }
+  }
+
+  private static String route(HttpMethod method, HttpPath path) {
+    return method + " " + path.toPath();
+  }
+
+  private static final class Hits {
+
+    private final HttpMethod method;
+    private final HttpPath path;
+    private final LongAdder adder = new LongAdder();
+
+    private Hits(HttpMethod method, HttpPath path) {
+      this.method = method;
+      this.path = path;
+    }
+  }
+
+  private static final class Waiter {
+
+    private final Matcher1<HttpRequest> matcher;
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    private Waiter(Matcher1<HttpRequest> matcher) {
+      this.matcher = matcher;
+    }
+
+    // runs in the thread that writes the request, a failing matcher must not break it
+    private void offer(HttpRequest request) {
+      try {
+        if (matcher.match(request)) {
+          latch.countDown();
+        }
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "error matching request", e);
+      }
+    }
+  }
+
+  static final class Entry {
+
+    private final Instant timestamp;
+    private final HttpRequest request;
+    private final AtomicReference<Blob> body;
+    private final boolean captured;
+
+    // set before the entry is published in the slots
+    private long sequence;
+
+    private Entry(Instant timestamp, HttpRequest request, Blob body, boolean captured) {
+      this.timestamp = requireNonNull(timestamp);
+      this.request = requireNonNull(request);
+      this.body = new AtomicReference<>(body);
+      this.captured = captured;
+    }
+
+    long sequence() {
+      return sequence;
+    }
+
+    Instant timestamp() {
+      return timestamp;
+    }
+
+    // false when the body was never read, the request is kept with an empty body
+    boolean isBodyCaptured() {
+      return captured;
+    }
+
+    // without body once it has been dropped
+    HttpRequest request() {
+      Blob blob = body.get();
+      return blob != null ? blob.attach(request) : request;
+    }
+  }
+}
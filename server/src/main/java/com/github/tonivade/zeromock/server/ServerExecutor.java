@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.util.Objects.requireNonNull;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+final class ServerExecutor implements Executor {
+
+  private static final Logger LOG = Logger.getLogger(ServerExecutor.class.getName());
+
+  private static final ThreadLocal<Boolean> SHED = new ThreadLocal<>();
+
+  private final ExecutorService delegate;
+  private final Executor shedder;
+  private final int maxInFlight;
+  private final int maxQueued;
+
+  // tasks waiting for a running slot, they are handed to the delegate only when one is free
+  private final Queue<Task> waiting = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger peakActive = new AtomicInteger();
+  private final LongAdder started = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder shed = new LongAdder();
+  private final LongAdder queueWait = new LongAdder();
+
+  // the shedder runs the tasks over the limits, it must not be a thread that accepts connections
+  ServerExecutor(ExecutorService delegate, int maxInFlight, int maxQueued, Executor shedder) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("invalid max in flight: " + maxInFlight);
+    }
+    if (maxQueued < 0) {
+      throw new IllegalArgumentException("invalid max queued: " + maxQueued);
+    }
+    this.delegate = requireNonNull(delegate);
+    this.shedder = requireNonNull(shedder);
+    this.maxInFlight = maxInFlight;
+    this.maxQueued = maxQueued;
+  }
+
+  // a task runs when there is a free running slot, otherwise it waits if there is room in the queue,
+  // when both are full it runs right away in the shedder flagged as shed,
+  // so the transport can answer it without dispatching it
+  @Override
+  public void execute(Runnable runnable) {
+    Task task = new Task(requireNonNull(runnable), System.nanoTime());
+    if (acquire(running, maxInFlight)) {
+      try {
+        delegate.execute(task);
+      } catch (RejectedExecutionException e) {
+        running.decrementAndGet();
+        throw e;
+      }
+      return;
+    }
+    if (!acquire(queued, maxQueued)) {
+      shed.increment();
+      shedder.execute(() -> shed(runnable));
+      return;
+    }
+    waiting.add(task);
+    // a slot may have been released before the task was added
+    drain();
+  }
+
+  // the rest of the work of a request already admitted, like reading a streamed response, is not limited again
+  void background(Runnable task) {
+    delegate.execute(requireNonNull(task));
+  }
+
+  static boolean isShed() {
+    return SHED.get() != null;
+  }
+
+  void shutdown() {
+    delegate.shutdown();
+    if (shedder instanceof ExecutorService) {
+      ((ExecutorService) shedder).shutdown();
+    }
+  }
+
+  ServerStats stats(List<Long> acceptedConnections) {
+    long count = started.sum();
+    Duration averageWait = Duration.ofNanos(count > 0 ? queueWait.sum() / count : 0);
+    return new ServerStats(acceptedConnections,
+        active.get(), peakActive.get(), queued.get(), completed.sum(), shed.sum(), averageWait);
+  }
+
+  // starts the waiting tasks while there are free running slots
+  private void drain() {
+    while (!waiting.isEmpty() && acquire(running, maxInFlight)) {
+      Task task = waiting.poll();
+      if (task == null) {
+        // taken by another thread, the slot is released and the queue checked again
+        running.decrementAndGet();
+        continue;
+      }
+      queued.decrementAndGet();
+      try {
+        delegate.execute(task);
+      } catch (RejectedExecutionException e) {
+        running.decrementAndGet();
+        LOG.log(Level.FINE, "task rejected", e);
+      }
+    }
+  }
+
+  private void run(Task task) {
+    queueWait.add(System.nanoTime() - task.submitted);
+    started.increment();
+    peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+    try {
+      task.runnable.run();
+    } finally {
+      active.decrementAndGet();
+      completed.increment();
+      running.decrementAndGet();
+      drain();
+    }
+  }
+
+  private static void shed(Runnable runnable) {
+    SHED.set(Boolean.TRUE);
+    try {
+      runnable.run();
+    } finally {
+      SHED.remove();
+    }
+  }
+
+  private static boolean acquire(AtomicInteger counter, int limit) {
+    while (true) {
+      int current = counter.get();
+      if (current >= limit) {
+        return false;
+      }
+      if (counter.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private final class Task implements Runnable {
+
+    private final Runnable runnable;
+    private final long submitted;
+
+    private Task(Runnable runnable, long submitted) {
+      this.runnable = runnable;
+      this.submitted = submitted;
+    }
+
+    @Override
+    public void run() {
+      ServerExecutor.this.run(this);
+    }
+  }
+}
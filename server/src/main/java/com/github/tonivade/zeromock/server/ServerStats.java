@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+import java.time.Duration;
+import java.util.List;
+
+public final class ServerStats {
+
+  static final ServerStats EMPTY = new ServerStats(emptyList(), 0, 0, 0, 0, 0, Duration.ZERO);
+
+  private final List<Long> acceptedConnections;
+  private final int activeTasks;
+  private final int peakActiveTasks;
+  private final int queuedTasks;
+  private final long completedTasks;
+  private final long shedTasks;
+  private final Duration averageQueueWait;
+
+  ServerStats(List<Long> acceptedConnections, int activeTasks, int peakActiveTasks, int queuedTasks,
+              long completedTasks, long shedTasks, Duration averageQueueWait) {
+    this.acceptedConnections = requireNonNull(acceptedConnections);
+    this.activeTasks = activeTasks;
+    this.peakActiveTasks = peakActiveTasks;
+    this.queuedTasks = queuedTasks;
+    this.completedTasks = completedTasks;
+    this.shedTasks = shedTasks;
+    this.averageQueueWait = requireNonNull(averageQueueWait);
+  }
+
+  // connections accepted by each acceptor loop, empty when the backend does not track them
+  public List<Long> acceptedConnections() {
+    return acceptedConnections;
+  }
+
+  public long totalConnections() {
+    return acceptedConnections.stream().mapToLong(Long::longValue).sum();
+  }
+
+  public int activeTasks() {
+    return activeTasks;
+  }
+
+  public int peakActiveTasks() {
+    return peakActiveTasks;
+  }
+
+  public int queuedTasks() {
+    return queuedTasks;
+  }
+
+  public long completedTasks() {
+    return completedTasks;
+  }
+
+  // requests answered with 503 because the admission limits were exceeded
+  public long shedTasks() {
+    return shedTasks;
+  }
+
+  public Duration averageQueueWait() {
+    return averageQueueWait;
+  }
+
+  @Override
+  public String toString() {
+    return "ServerStats(acceptedConnections=" + acceptedConnections
+        + ", activeTasks=" + activeTasks
+        + ", peakActiveTasks=" + peakActiveTasks
+        + ", queuedTasks=" + queuedTasks
+        + ", completedTasks=" + completedTasks
+        + ", shedTasks=" + shedTasks
+        + ", averageQueueWait=" + averageQueueWait + ")";
+  }
+}
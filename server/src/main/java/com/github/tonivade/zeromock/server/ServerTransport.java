@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import java.net.InetSocketAddress;
+
+interface ServerTransport {
+
+  void bind(RequestDispatcher dispatcher);
+
+  InetSocketAddress getAddress();
+
+  ServerStats stats();
+
+  void start();
+  void stop();
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+public final class Times {
+
+  private final int min;
+  private final int max;
+
+  private Times(int min, int max) {
+    if (min < 0 || max < min) {
+      throw new IllegalArgumentException("invalid number of times: " + min + ".." + max);
+    }
+    this.min = min;
+    this.max = max;
+  }
+
+  public boolean matches(long count) {
+    return count >= min && count <= max;
+  }
+
+  public static Times never() {
+    return times(0);
+  }
+
+  public static Times once() {
+    return times(1);
+  }
+
+  public static Times times(int times) {
+    return new Times(times, times);
+  }
+
+  public static Times atLeast(int times) {
+    return new Times(times, Integer.MAX_VALUE);
+  }
+
+  public static Times atMost(int times) {
+    return new Times(0, times);
+  }
+
+  @Override
+  public String toString() {
+    if (min == max) {
+      return "exactly " + min;
+    }
+    if (max == Integer.MAX_VALUE) {
+      return "at least " + min;
+    }
+    return min == 0 ? "at most " + max : min + " to " + max;
+  }
+}
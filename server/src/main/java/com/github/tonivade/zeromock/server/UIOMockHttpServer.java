@@ -11,6 +11,7 @@ import static com.github.tonivade.zeromock.server.ResponseInterpreterK.uioAsync;
 import static com.github.tonivade.zeromock.server.ResponseInterpreterK.uioSync;
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.Executor;
 
@@ -18,6 +19,7 @@ import com.github.tonivade.purefun.Matcher1;
 import com.github.tonivade.purefun.effect.UIO;
 import com.github.tonivade.purefun.effect.UIO_;
 import com.github.tonivade.purefun.instances.UIOInstances;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.HttpUIOService;
 import com.github.tonivade.zeromock.api.HttpUIOService.MappingBuilder;
@@ -72,6 +74,11 @@ public final class UIOMockHttpServer implements HttpServer {
     return this;
   }
 
+  public UIOMockHttpServer combine(HttpUIOService other) {
+    serverK.combine(other.build());
+    return this;
+  }
+
   public UIOMockHttpServer exec(UIORequestHandler handler) {
     serverK.exec(handler);
     return this;
@@ -136,11 +143,40 @@ public final class UIOMockHttpServer implements HttpServer {
     return this;
   }
 
+  @Override
+  public UIOMockHttpServer verify(Matcher1<HttpRequest> matcher, Times times) {
+    serverK.verify(matcher, times);
+    return this;
+  }
+
+  @Override
+  public UIOMockHttpServer verify(HttpMethod method, String path, Times times) {
+    serverK.verify(method, path, times);
+    return this;
+  }
+
+  @Override
+  public UIOMockHttpServer verifyInOrder(List<Matcher1<HttpRequest>> matchers) {
+    serverK.verifyInOrder(matchers);
+    return this;
+  }
+
+  @Override
+  public UIOMockHttpServer await(Matcher1<HttpRequest> matcher, Duration timeout) {
+    serverK.await(matcher, timeout);
+    return this;
+  }
+
   @Override
   public List<HttpRequest> getUnmatched() {
     return serverK.getUnmatched();
   }
 
+  @Override
+  public ServerStats stats() {
+    return serverK.stats();
+  }
+
   @Override
   public void reset() {
     serverK.reset();
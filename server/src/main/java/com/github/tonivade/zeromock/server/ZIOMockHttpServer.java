@@ -11,6 +11,7 @@ import static com.github.tonivade.zeromock.server.ResponseInterpreterK.zioAsync;
 import static com.github.tonivade.zeromock.server.ResponseInterpreterK.zioSync;
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.Executor;
 
@@ -22,6 +23,7 @@ import com.github.tonivade.purefun.effect.ZIO;
 import com.github.tonivade.purefun.effect.ZIO_;
 import com.github.tonivade.purefun.instances.ZIOInstances;
 import com.github.tonivade.purefun.type.Either;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.HttpResponse;
 import com.github.tonivade.zeromock.api.HttpZIOService;
@@ -72,6 +74,11 @@ public final class ZIOMockHttpServer<R> implements HttpServer {
     return this;
   }
 
+  public ZIOMockHttpServer<R> combine(HttpZIOService<R> other) {
+    serverK.combine(other.build());
+    return this;
+  }
+
   public ZIOMockHttpServer<R> exec(ZIORequestHandler<R> handler) {
     serverK.exec(handler);
     return this;
@@ -136,11 +143,40 @@ public final class ZIOMockHttpServer<R> implements HttpServer {
     return this;
   }
 
+  @Override
+  public ZIOMockHttpServer<R> verify(Matcher1<HttpRequest> matcher, Times times) {
+    serverK.verify(matcher, times);
+    return this;
+  }
+
+  @Override
+  public ZIOMockHttpServer<R> verify(HttpMethod method, String path, Times times) {
+    serverK.verify(method, path, times);
+    return this;
+  }
+
+  @Override
+  public ZIOMockHttpServer<R> verifyInOrder(List<Matcher1<HttpRequest>> matchers) {
+    serverK.verifyInOrder(matchers);
+    return this;
+  }
+
+  @Override
+  public ZIOMockHttpServer<R> await(Matcher1<HttpRequest> matcher, Duration timeout) {
+    serverK.await(matcher, timeout);
+    return this;
+  }
+
   @Override
   public List<HttpRequest> getUnmatched() {
     return serverK.getUnmatched();
   }
 
+  @Override
+  public ServerStats stats() {
+    return serverK.stats();
+  }
+
   @Override
   public void reset() {
     serverK.reset();
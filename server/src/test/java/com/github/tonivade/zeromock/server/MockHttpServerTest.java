@@ -6,21 +6,54 @@ package com.github.tonivade.zeromock.server;
 
 import static com.github.tonivade.zeromock.api.Bytes.asString;
 import static com.github.tonivade.zeromock.api.Handlers.badRequest;
+import static com.github.tonivade.zeromock.api.Handlers.mapped;
 import static com.github.tonivade.zeromock.api.Handlers.noContent;
 import static com.github.tonivade.zeromock.api.Handlers.ok;
 import static com.github.tonivade.zeromock.api.Headers.contentJson;
 import static com.github.tonivade.zeromock.api.Headers.contentXml;
 import static com.github.tonivade.zeromock.api.Matchers.acceptsJson;
 import static com.github.tonivade.zeromock.api.Matchers.acceptsXml;
+import static com.github.tonivade.zeromock.api.Matchers.body;
 import static com.github.tonivade.zeromock.api.Matchers.get;
 import static com.github.tonivade.zeromock.api.Matchers.param;
+import static com.github.tonivade.zeromock.api.Matchers.post;
 import static com.github.tonivade.zeromock.api.Serializers.objectToJson;
 import static com.github.tonivade.zeromock.api.Serializers.plain;
 import static com.github.tonivade.zeromock.api.Serializers.objectToXml;
 import static com.github.tonivade.zeromock.client.HttpClient.connectTo;
 import static com.github.tonivade.zeromock.server.MockHttpServer.listenAt;
+import static com.github.tonivade.zeromock.server.Times.atLeast;
+import static com.github.tonivade.zeromock.server.Times.never;
+import static com.github.tonivade.zeromock.server.Times.once;
+import static com.github.tonivade.zeromock.server.Times.times;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -30,13 +63,18 @@ import org.junit.jupiter.api.Test;
 import com.github.tonivade.purefun.Function1;
 import com.github.tonivade.purefun.Producer;
 import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.zeromock.api.Bytes;
 import com.github.tonivade.zeromock.api.Deserializers;
+import com.github.tonivade.zeromock.api.FileStream;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.HttpResponse;
 import com.github.tonivade.zeromock.api.HttpService;
 import com.github.tonivade.zeromock.api.HttpStatus;
 import com.github.tonivade.zeromock.api.Requests;
+import com.github.tonivade.zeromock.api.ResponseStream;
 import com.github.tonivade.zeromock.api.Responses;
+import com.github.tonivade.zeromock.client.HttpClient;
 
 public class MockHttpServerTest {
 
@@ -126,6 +164,28 @@ public class MockHttpServerTest {
               () -> assertEquals("pong", asString(response.body())));
   }
 
+  @Test
+  public void combine() {
+    server.combine(service3);
+
+    HttpResponse response = connectTo("http://localhost:" + server.getPort()).request(Requests.get("/ping"));
+
+    assertAll(() -> assertEquals(HttpStatus.OK, response.status()),
+              () -> assertEquals("pong", asString(response.body())));
+  }
+
+  @Test
+  public void manyRoutes() {
+    for (int i = 0; i < 10000; i++) {
+      server.when(get("/route/" + i)).then(ok("route " + i));
+    }
+
+    HttpResponse response = connectTo("http://localhost:" + server.getPort()).request(Requests.get("/route/9999"));
+
+    assertAll(() -> assertEquals(HttpStatus.OK, response.status()),
+              () -> assertEquals("route 9999", asString(response.body())));
+  }
+
   @Test
   public void exec() {
     MockHttpServer server = listenAt(0).exec(request -> Responses.ok(request.body())).start();
@@ -138,6 +198,421 @@ public class MockHttpServerTest {
     server.stop();
   }
 
+  @Test
+  public void nioBackend() {
+    MockHttpServer server = MockHttpServer.builder().port(0).backend(MockHttpServerK.Backend.NIO).build()
+        .mount("/path", service3)
+        .exec(request -> Responses.ok(request.body()))
+        .start();
+
+    HttpClient client = connectTo("http://localhost:" + server.getPort());
+    HttpResponse ping = client.request(Requests.get("/path/ping"));
+    HttpResponse echo = client.request(Requests.post("/echo").withBody("echo"));
+
+    assertAll(() -> assertEquals(HttpStatus.OK, ping.status()),
+              () -> assertEquals("pong", asString(ping.body())),
+              () -> assertEquals(HttpStatus.OK, echo.status()),
+              () -> assertEquals("echo", asString(echo.body())));
+
+    server.stop();
+  }
+
+  @Test
+  public void nioKeepsDateHeader() {
+    String date = "Tue, 15 Nov 1994 08:12:31 GMT";
+    MockHttpServer server = MockHttpServer.builder().port(0).backend(MockHttpServerK.Backend.NIO).build()
+        .when(get("/dated")).then(request -> Responses.ok("pong").withHeader("Date", date))
+        .when(get("/frozen")).then(request -> Responses.ok("pong").withHeader("Date", date).freeze())
+        .start();
+
+    HttpClient client = connectTo("http://localhost:" + server.getPort());
+    HttpResponse dated = client.request(Requests.get("/dated"));
+    HttpResponse frozen = client.request(Requests.get("/frozen"));
+
+    assertAll(() -> assertEquals(ImmutableSet.of(date), dated.headers().get("Date")),
+              () -> assertEquals(ImmutableSet.of(date), frozen.headers().get("Date")));
+
+    server.stop();
+  }
+
+  @Test
+  public void nioChunkedRequestAndIdleTimeout() throws IOException, InterruptedException {
+    MockHttpServer server = MockHttpServer.builder().port(0).backend(MockHttpServerK.Backend.NIO)
+        .idleTimeout(Duration.ofMillis(200)).build()
+        .exec(request -> Responses.ok(request.body()))
+        .start();
+
+    try (Socket socket = new Socket("localhost", server.getPort())) {
+      socket.setSoTimeout(5000);
+      OutputStream output = socket.getOutputStream();
+      output.write(ascii("POST /echo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhel"));
+      output.flush();
+      Thread.sleep(50);
+      output.write(ascii("lo\r\n6\r\n world\r\n0\r\n\r\n"));
+      output.flush();
+
+      String response = readUntilClosed(socket.getInputStream());
+
+      assertAll(() -> assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n")),
+                () -> assertTrue(response.endsWith("\r\n\r\nhello world")));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void nioRequestSizeAndHttp10KeepAlive() throws IOException {
+    MockHttpServer server = MockHttpServer.builder().port(0).backend(MockHttpServerK.Backend.NIO)
+        .idleTimeout(Duration.ofMillis(200)).maxRequestSize(10).build()
+        .exec(request -> Responses.ok(request.body()))
+        .start();
+
+    try {
+      // rejected without reading the rest, nothing is left unread when the server closes the connection
+      String fixed = exchange(server.getPort(), "POST /echo HTTP/1.1\r\nContent-Length: 11\r\n\r\n");
+      String chunked = exchange(server.getPort(),
+          "POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n6\r\n");
+      String http10 = exchange(server.getPort(), "POST /echo HTTP/1.0\r\nConnection: keep-alive\r\nContent-Length: 5\r\n\r\nhello");
+
+      assertAll(() -> assertTrue(fixed.startsWith("HTTP/1.1 413 Payload Too Large\r\n")),
+                () -> assertTrue(chunked.startsWith("HTTP/1.1 413 Payload Too Large\r\n")),
+                () -> assertTrue(http10.startsWith("HTTP/1.1 200 OK\r\n")),
+                () -> assertTrue(http10.contains("\r\nConnection: keep-alive\r\n")),
+                () -> assertTrue(http10.endsWith("\r\n\r\nhello")));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void nioAcceptors() {
+    MockHttpServer server = MockHttpServer.builder().port(0).backend(MockHttpServerK.Backend.NIO).acceptors(2).build()
+        .exec(ok("pong"))
+        .start();
+
+    HttpResponse ping = connectTo("http://localhost:" + server.getPort()).request(Requests.get("/ping"));
+    ServerStats stats = server.stats();
+
+    assertAll(() -> assertEquals(HttpStatus.OK, ping.status()),
+              () -> assertEquals(2, stats.acceptedConnections().size()),
+              () -> assertTrue(stats.totalConnections() > 0),
+              () -> assertTrue(MockHttpServerTest.server.stats().acceptedConnections().isEmpty()));
+
+    server.stop();
+  }
+
+  @Test
+  public void executorStrategy() {
+    MockHttpServer server = MockHttpServer.builder().port(0).executor(MockHttpServerK.ExecutorStrategy.WORK_STEALING).build()
+        .exec(ok("pong"))
+        .start();
+
+    HttpResponse ping = connectTo("http://localhost:" + server.getPort()).request(Requests.get("/ping"));
+    ServerStats stats = server.stats();
+
+    assertAll(() -> assertEquals(HttpStatus.OK, ping.status()),
+              () -> assertTrue(stats.peakActiveTasks() > 0),
+              () -> assertTrue(stats.acceptedConnections().isEmpty()));
+
+    server.stop();
+  }
+
+  @Test
+  public void loadShedding() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch latch = new CountDownLatch(1);
+    MockHttpServer server = MockHttpServer.builder().port(0).maxInFlight(1).maxQueued(0).build()
+        .exec(request -> {
+          started.countDown();
+          try {
+            latch.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return Responses.ok();
+        })
+        .start();
+
+    String url = "http://localhost:" + server.getPort();
+    CompletableFuture<HttpResponse> first = CompletableFuture.supplyAsync(() -> connectTo(url).request(Requests.get("/first")));
+    started.await();
+    HttpResponse second = connectTo(url).request(Requests.get("/second"));
+    latch.countDown();
+
+    assertAll(() -> assertEquals(HttpStatus.SERVICE_UNAVAILABLE, second.status()),
+              () -> assertEquals(HttpStatus.OK, first.get().status()),
+              () -> assertEquals(1, server.stats().shedTasks()));
+
+    server.stop();
+  }
+
+  @Test
+  public void streamedResponse() {
+    byte[] content = new byte[100000];
+    Arrays.fill(content, (byte) 'x');
+    ResponseStream stream = () -> Channels.newChannel(new ByteArrayInputStream(content));
+
+    MockHttpServer jdk = MockHttpServer.builder().port(0).build().exec(ok(stream)).start();
+    MockHttpServer nio = MockHttpServer.builder().port(0).backend(MockHttpServerK.Backend.NIO).build()
+        .exec(ok(stream)).start();
+
+    HttpResponse fromJdk = connectTo("http://localhost:" + jdk.getPort()).request(Requests.get("/download"));
+    HttpResponse fromNio = connectTo("http://localhost:" + nio.getPort()).request(Requests.get("/download"));
+
+    assertAll(() -> assertEquals(HttpStatus.OK, fromJdk.status()),
+              () -> assertEquals(Bytes.fromArray(content), fromJdk.body()),
+              () -> assertEquals(HttpStatus.OK, fromNio.status()),
+              () -> assertEquals(Bytes.fromArray(content), fromNio.body()));
+
+    jdk.stop();
+    nio.stop();
+  }
+
+  @Test
+  public void streamedResponseOffEventLoop() {
+    byte[] content = new byte[100000];
+    Arrays.fill(content, (byte) 'x');
+    List<String> threads = new CopyOnWriteArrayList<>();
+    AtomicInteger empty = new AtomicInteger(3);
+    ResponseStream stream = () -> {
+      threads.add(Thread.currentThread().getName());
+      ReadableByteChannel source = Channels.newChannel(new ByteArrayInputStream(content));
+      return new ReadableByteChannel() {
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+          threads.add(Thread.currentThread().getName());
+          return empty.getAndDecrement() > 0 ? 0 : source.read(buffer);
+        }
+
+        @Override
+        public boolean isOpen() {
+          return source.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+          source.close();
+        }
+      };
+    };
+
+    MockHttpServer nio = MockHttpServer.builder().port(0).backend(MockHttpServerK.Backend.NIO).build()
+        .exec(ok(stream)).start();
+
+    HttpResponse response = connectTo("http://localhost:" + nio.getPort()).request(Requests.get("/download"));
+
+    assertAll(() -> assertEquals(HttpStatus.OK, response.status()),
+              () -> assertEquals(Bytes.fromArray(content), response.body()),
+              () -> assertFalse(threads.isEmpty()),
+              () -> assertTrue(threads.stream().noneMatch(name -> name.startsWith("zeromock-nio-"))));
+
+    nio.stop();
+  }
+
+  @Test
+  public void fileResponse() throws IOException {
+    Path file = Files.createTempFile("zeromock", ".txt");
+    file.toFile().deleteOnExit();
+    Files.write(file, "0123456789".getBytes(StandardCharsets.UTF_8));
+
+    MockHttpServer jdk = MockHttpServer.builder().port(0).build()
+        .when(get("/file")).then(ok(file))
+        .when(get("/mapped")).then(mapped(file))
+        .start();
+    MockHttpServer nio = MockHttpServer.builder().port(0).backend(MockHttpServerK.Backend.NIO).build()
+        .when(get("/file")).then(ok(file))
+        .when(get("/region")).then(ok(FileStream.of(file, 2, 5)))
+        .when(get("/mapped")).then(mapped(file))
+        .start();
+
+    HttpClient jdkClient = connectTo("http://localhost:" + jdk.getPort());
+    HttpClient nioClient = connectTo("http://localhost:" + nio.getPort());
+
+    assertAll(() -> assertEquals("0123456789", asString(jdkClient.request(Requests.get("/file")).body())),
+              () -> assertEquals("0123456789", asString(jdkClient.request(Requests.get("/mapped")).body())),
+              () -> assertEquals("0123456789", asString(nioClient.request(Requests.get("/file")).body())),
+              () -> assertEquals("23456", asString(nioClient.request(Requests.get("/region")).body())),
+              () -> assertEquals("0123456789", asString(nioClient.request(Requests.get("/mapped")).body())));
+
+    jdk.stop();
+    nio.stop();
+  }
+
+  @Test
+  public void journalCapacity() {
+    MockHttpServer server = MockHttpServer.builder().port(0).journalCapacity(2).build()
+        .when(get("/ping")).then(ok("pong"))
+        .start();
+
+    HttpClient client = connectTo("http://localhost:" + server.getPort());
+    CompletableFuture.allOf(
+        CompletableFuture.runAsync(() -> client.request(Requests.get("/ping"))),
+        CompletableFuture.runAsync(() -> client.request(Requests.get("/ping")))).join();
+    client.request(Requests.get("/a"));
+    client.request(Requests.get("/b"));
+    client.request(Requests.get("/c"));
+
+    List<HttpRequest> unmatched = server.getUnmatched();
+
+    assertAll(() -> server.verify(get("/ping")),
+              () -> assertEquals(2, unmatched.size()),
+              () -> assertTrue(get("/b").match(unmatched.get(0))),
+              () -> assertTrue(get("/c").match(unmatched.get(1))));
+
+    server.reset();
+
+    assertAll(() -> server.verifyNot(get("/ping")),
+              () -> assertTrue(server.getUnmatched().isEmpty()));
+
+    server.stop();
+  }
+
+  @Test
+  public void verifyUnreadBody() {
+    server.when(post("/ignore")).then(ok("ignored"));
+
+    connectTo("http://localhost:" + server.getPort()).request(Requests.post("/ignore").withBody("payload"));
+
+    server.verify(post("/ignore").and(body("payload")));
+  }
+
+  @Test
+  public void journalMemory() {
+    MockHttpServer server = MockHttpServer.builder().port(0)
+        .journalMaxBodySize(16).journalCompressAbove(8).journalMaxBytes(32).build()
+        .start();
+
+    HttpClient client = connectTo("http://localhost:" + server.getPort());
+    client.request(Requests.post("/a").withBody("0123456789abcdefXYZ"));
+    client.request(Requests.post("/b").withBody(String.join("", Collections.nCopies(100, "a"))));
+    client.request(Requests.post("/c").withBody("0123456789abcdef"));
+    List<HttpRequest> before = server.getUnmatched();
+    client.request(Requests.post("/d").withBody("fedcba9876543210"));
+    List<HttpRequest> after = server.getUnmatched();
+
+    assertAll(() -> assertEquals("0123456789abcdef", asString(before.get(0).body())),
+              () -> assertEquals(String.join("", Collections.nCopies(16, "a")), asString(before.get(1).body())),
+              () -> assertEquals(4, after.size()),
+              () -> assertTrue(post("/a").match(after.get(0))),
+              () -> assertEquals("", asString(after.get(0).body())),
+              () -> assertEquals("", asString(after.get(1).body())),
+              () -> assertEquals("0123456789abcdef", asString(after.get(2).body())),
+              () -> assertEquals("fedcba9876543210", asString(after.get(3).body())));
+
+    server.stop();
+  }
+
+  @Test
+  public void diskJournal() throws IOException {
+    Path directory = Files.createTempDirectory("zeromock");
+    Files.createDirectories(directory.resolve("matched"));
+    Files.createFile(directory.resolve("matched").resolve("segment-copy.journal"));
+    MockHttpServer server = MockHttpServer.builder().port(0)
+        .journalCapacity(1).journalDirectory(directory).journalSegmentSize(128).build()
+        .when(post("/ping")).then(request -> Responses.ok(request.body()))
+        .start();
+
+    HttpClient client = connectTo("http://localhost:" + server.getPort());
+    for (int i = 0; i < 5; i++) {
+      client.request(Requests.post("/ping").withParam("id", String.valueOf(i)).withBody("body " + i));
+    }
+    client.request(Requests.post("/other%3Fx").withBody("unmatched"));
+
+    server.verify(post("/ping"), times(5))
+          .verifyInOrder(Arrays.asList(param("id", "0"), param("id", "4")));
+    server.stop();
+
+    List<JournalRecord> matched = JournalReader.read(directory.resolve("matched")).collect(Collectors.toList());
+    List<JournalRecord> unmatched = JournalReader.read(directory.resolve("unmatched")).collect(Collectors.toList());
+
+    assertAll(() -> assertEquals(5, matched.size()),
+              () -> assertTrue(DiskJournal.files(directory.resolve("matched")).size() > 1),
+              () -> assertEquals(4, matched.get(4).sequence()),
+              () -> assertEquals("4", matched.get(4).request().param("id")),
+              () -> assertEquals("body 4", asString(matched.get(4).request().body())),
+              () -> assertTrue(matched.get(4).isBodyCaptured()),
+              () -> assertEquals(1, unmatched.size()),
+              () -> assertEquals("/other?x", unmatched.get(0).request().path().toPath()),
+              () -> assertTrue(unmatched.get(0).isBodyCaptured()),
+              () -> assertEquals("unmatched", asString(unmatched.get(0).request().body())));
+  }
+
+  @Test
+  public void diskJournalInSequenceOrder() throws IOException {
+    Path directory = Files.createTempDirectory("zeromock");
+    MockHttpServer server = MockHttpServer.builder().port(0).threads(4)
+        .journalDirectory(directory).journalSegmentSize(1024).build()
+        .when(post("/ping")).then(request -> Responses.ok(request.body()))
+        .start();
+
+    List<CompletableFuture<Void>> clients = LongStream.range(0, 4)
+        .mapToObj(i -> CompletableFuture.runAsync(() -> {
+          HttpClient client = connectTo("http://localhost:" + server.getPort());
+          for (int j = 0; j < 10; j++) {
+            client.request(Requests.post("/ping").withBody("body " + i + "-" + j));
+          }
+        }))
+        .collect(Collectors.toList());
+    clients.forEach(CompletableFuture::join);
+    server.stop();
+
+    List<Long> sequences = JournalReader.read(directory.resolve("matched"))
+        .map(JournalRecord::sequence).collect(Collectors.toList());
+
+    assertEquals(LongStream.range(0, 40).boxed().collect(Collectors.toList()), sequences);
+  }
+
+  @Test
+  public void verifyTimes() {
+    server.when(get("/ping")).then(ok("pong"))
+          .when(get("/other")).then(ok("other"));
+
+    HttpClient client = connectTo("http://localhost:" + server.getPort());
+    client.request(Requests.get("/ping"));
+    client.request(Requests.get("/other"));
+    client.request(Requests.get("/ping"));
+
+    assertAll(() -> server.verify(get("/ping"), times(2)),
+              () -> server.verify(get("/other"), once()),
+              () -> server.verify(get("/unknown"), never()),
+              () -> server.verify(HttpMethod.GET, "/ping", atLeast(2)),
+              () -> server.verify(HttpMethod.POST, "/ping", never()),
+              () -> server.verifyInOrder(Arrays.asList(get("/ping"), get("/other"), get("/ping"))),
+              () -> assertThrows(AssertionError.class, () -> server.verify(get("/ping"), once())),
+              () -> assertThrows(AssertionError.class, () -> server.verify(HttpMethod.GET, "/other", atLeast(2))),
+              () -> assertThrows(AssertionError.class,
+                  () -> server.verifyInOrder(Arrays.asList(get("/other"), get("/ping"), get("/other")))));
+  }
+
+  @Test
+  public void verifyRoutePattern() {
+    server.when(get("/users/:id")).then(ok("user"));
+
+    HttpClient client = connectTo("http://localhost:" + server.getPort());
+    client.request(Requests.get("/users/1"));
+    client.request(Requests.get("/users/2"));
+    client.request(Requests.get("/users/1"));
+
+    assertAll(() -> server.verify(HttpMethod.GET, "/users/:id", times(3)),
+              () -> server.verify(HttpMethod.GET, "/users/1", times(2)),
+              () -> server.verify(HttpMethod.GET, "/users/2", once()),
+              () -> server.verify(HttpMethod.DELETE, "/users/:id", never()),
+              () -> server.verify(HttpMethod.GET, "/users/:id/orders", never()));
+  }
+
+  @Test
+  public void await() {
+    server.when(get("/ping")).then(ok("pong"));
+
+    CompletableFuture<HttpResponse> response = CompletableFuture.supplyAsync(
+        () -> connectTo("http://localhost:" + server.getPort()).request(Requests.get("/ping")));
+
+    assertAll(() -> server.await(get("/ping"), Duration.ofSeconds(5)),
+              () -> assertEquals(HttpStatus.OK, response.join().status()),
+              () -> server.await(get("/ping"), Duration.ZERO),
+              () -> assertThrows(AssertionError.class, () -> server.await(get("/other"), Duration.ofMillis(100))));
+  }
+
   @BeforeEach
   public void beforeEach() {
     server.reset();
@@ -165,6 +640,29 @@ public class MockHttpServerTest {
     return supplier.asFunction();
   }
 
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private static String exchange(int port, String request) throws IOException {
+    try (Socket socket = new Socket("localhost", port)) {
+      socket.setSoTimeout(5000);
+      socket.getOutputStream().write(ascii(request));
+      socket.getOutputStream().flush();
+      return readUntilClosed(socket.getInputStream());
+    }
+  }
+
+  // the server closes the keep alive connection once it is idle
+  private static String readUntilClosed(InputStream input) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+      result.write(buffer, 0, read);
+    }
+    return new String(result.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+
   private String baseUrl() {
     return String.format(BASE_URL, server.getPort());
   }
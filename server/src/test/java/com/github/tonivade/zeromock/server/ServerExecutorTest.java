@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.zeromock.server;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+public class ServerExecutorTest {
+
+  @Test
+  public void queuedTasksWaitForARunningSlot() throws InterruptedException {
+    ServerExecutor executor = new ServerExecutor(Executors.newFixedThreadPool(2), 1, 1, Runnable::run);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(2);
+    List<Boolean> shed = new CopyOnWriteArrayList<>();
+
+    executor.execute(() -> {
+      started.countDown();
+      await(release);
+      finished.countDown();
+    });
+    started.await();
+    executor.execute(finished::countDown);
+    executor.execute(() -> shed.add(ServerExecutor.isShed()));
+    ServerStats stats = executor.stats(emptyList());
+    release.countDown();
+
+    assertAll(() -> assertTrue(finished.await(5, SECONDS)),
+              () -> assertEquals(1, stats.activeTasks()),
+              () -> assertEquals(1, stats.queuedTasks()),
+              () -> assertEquals(1, stats.shedTasks()),
+              () -> assertEquals(singletonList(true), shed));
+
+    executor.shutdown();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
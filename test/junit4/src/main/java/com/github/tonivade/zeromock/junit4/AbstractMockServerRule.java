@@ -5,15 +5,19 @@
 package com.github.tonivade.zeromock.junit4;
 
 import static java.util.Objects.requireNonNull;
+import java.time.Duration;
+import java.util.List;
 import org.junit.rules.ExternalResource;
 import com.github.tonivade.purefun.Matcher1;
 import com.github.tonivade.purefun.Witness;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.HttpServiceK;
 import com.github.tonivade.zeromock.api.HttpServiceK.MappingBuilderK;
 import com.github.tonivade.zeromock.api.RequestHandlerK;
 import com.github.tonivade.zeromock.client.HttpClient;
 import com.github.tonivade.zeromock.server.MockHttpServerK;
+import com.github.tonivade.zeromock.server.Times;
 
 public abstract class AbstractMockServerRule<F extends Witness> extends ExternalResource {
 
@@ -47,6 +51,26 @@ public abstract class AbstractMockServerRule<F extends Witness> extends External
     return this;
   }
 
+  public AbstractMockServerRule<F> verify(Matcher1<HttpRequest> matcher, Times times) {
+    server.verify(matcher, times);
+    return this;
+  }
+
+  public AbstractMockServerRule<F> verify(HttpMethod method, String path, Times times) {
+    server.verify(method, path, times);
+    return this;
+  }
+
+  public AbstractMockServerRule<F> verifyInOrder(List<Matcher1<HttpRequest>> matchers) {
+    server.verifyInOrder(matchers);
+    return this;
+  }
+
+  public AbstractMockServerRule<F> await(Matcher1<HttpRequest> matcher, Duration timeout) {
+    server.await(matcher, timeout);
+    return this;
+  }
+
   public AbstractMockServerRule<F> addMapping(Matcher1<HttpRequest> matcher, RequestHandlerK<F> handler) {
     server.when(matcher).then(handler);
     return this;
@@ -4,9 +4,13 @@
  */
 package com.github.tonivade.zeromock.junit4;
 
+import java.time.Duration;
+import java.util.List;
+
 import org.junit.rules.ExternalResource;
 
 import com.github.tonivade.purefun.Matcher1;
+import com.github.tonivade.zeromock.api.HttpMethod;
 import com.github.tonivade.zeromock.api.HttpRequest;
 import com.github.tonivade.zeromock.api.HttpService;
 import com.github.tonivade.zeromock.api.HttpService.MappingBuilder;
@@ -17,6 +21,7 @@ import com.github.tonivade.zeromock.client.IOHttpClient;
 import com.github.tonivade.zeromock.client.TaskHttpClient;
 import com.github.tonivade.zeromock.client.UIOHttpClient;
 import com.github.tonivade.zeromock.server.MockHttpServer;
+import com.github.tonivade.zeromock.server.Times;
 
 public class MockHttpServerRule extends ExternalResource {
 
@@ -74,6 +79,26 @@ public class MockHttpServerRule extends ExternalResource {
     return this;
   }
 
+  public MockHttpServerRule verify(Matcher1<HttpRequest> matcher, Times times) {
+    server.verify(matcher, times);
+    return this;
+  }
+
+  public MockHttpServerRule verify(HttpMethod method, String path, Times times) {
+    server.verify(method, path, times);
+    return this;
+  }
+
+  public MockHttpServerRule verifyInOrder(List<Matcher1<HttpRequest>> matchers) {
+    server.verifyInOrder(matchers);
+    return this;
+  }
+
+  public MockHttpServerRule await(Matcher1<HttpRequest> matcher, Duration timeout) {
+    server.await(matcher, timeout);
+    return this;
+  }
+
   public MockHttpServerRule addMapping(Matcher1<HttpRequest> matcher, RequestHandler handler) {
     server.when(matcher).then(handler);
     return this;